@@ -0,0 +1,64 @@
+package com.si.googleads.benchmark;
+
+import com.si.googleads.user.Role;
+import com.si.googleads.user.User;
+import com.si.googleads.user.UserResponseDto;
+import com.si.googleads.util.AppUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AppUtilsBenchmark {
+    @Param({"10", "1000"})
+    private int listSize;
+
+    private User user;
+    private List<User> users;
+
+    @Setup
+    public void setUp() {
+        user = user(0);
+        users = IntStream.range(0, listSize).mapToObj(AppUtilsBenchmark::user).toList();
+    }
+
+    @Benchmark
+    public UserResponseDto entityToDto() {
+        return AppUtils.entityToDto(user, UserResponseDto.class);
+    }
+
+    @Benchmark
+    public List<UserResponseDto> entityListToDtoList() {
+        return AppUtils.entityListToDtoList(users, UserResponseDto.class);
+    }
+
+    private static User user(int i) {
+        Instant now = Instant.now();
+        return User.builder()
+                .id("user-" + i)
+                .email("user-" + i + "@example.com")
+                .password("$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z5ZlD6Z4l5Y8nZ7dF8QeJxWe")
+                .role(Role.USER)
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+    }
+}
@@ -0,0 +1,84 @@
+package com.si.googleads.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.si.googleads.auth.AccessTokenResponse;
+import com.si.googleads.auth.AuthResponse;
+import com.si.googleads.response.SuccessResponse;
+import com.si.googleads.user.UserResponseDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JacksonSerializationBenchmark {
+    private static final String GOOGLE_TOKEN_RESPONSE = """
+            {"access_token":"ya29.a0AfB_byC-benchmark","expires_in":3599,"token_type":"Bearer",\
+            "refresh_token":"1//0g-benchmark","scope":"https://www.googleapis.com/auth/analytics.readonly"}""";
+
+    private ObjectMapper objectMapper;
+    private AuthResponse authResponse;
+    private SuccessResponse<UserResponseDto> successResponse;
+    private AccessTokenResponse accessTokenResponse;
+
+    @Setup
+    public void setUp() {
+        // Same module setup Spring Boot applies to the application's ObjectMapper
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        UserResponseDto user = UserResponseDto.builder()
+                .id("6565f1c2a4b0b2a1c8e4d001")
+                .email("benchmark@example.com")
+                .createdAt(Instant.now())
+                .build();
+        authResponse = AuthResponse.builder()
+                .message("Login successful")
+                .token("eyJhbGciOiJIUzI1NiJ9.eyJzdWIiOiJiZW5jaG1hcmtAZXhhbXBsZS5jb20ifQ.signature")
+                .user(user)
+                .build();
+        successResponse = new SuccessResponse<>("User fetched", user);
+        accessTokenResponse = AccessTokenResponse.builder()
+                .accessToken("ya29.a0AfB_byC-benchmark")
+                .expiresIn(Duration.ofSeconds(3599))
+                .tokenType("Bearer")
+                .refreshToken("1//0g-benchmark")
+                .scope("https://www.googleapis.com/auth/analytics.readonly")
+                .build();
+    }
+
+    @Benchmark
+    public byte[] serializeAuthResponse() throws Exception {
+        return objectMapper.writeValueAsBytes(authResponse);
+    }
+
+    @Benchmark
+    public byte[] serializeSuccessResponse() throws Exception {
+        return objectMapper.writeValueAsBytes(successResponse);
+    }
+
+    @Benchmark
+    public byte[] serializeAccessTokenResponse() throws Exception {
+        return objectMapper.writeValueAsBytes(accessTokenResponse);
+    }
+
+    @Benchmark
+    public AccessTokenResponse deserializeGoogleTokenResponse() throws Exception {
+        return objectMapper.readValue(GOOGLE_TOKEN_RESPONSE, AccessTokenResponse.class);
+    }
+}
@@ -0,0 +1,64 @@
+package com.si.googleads.benchmark;
+
+import com.si.googleads.configuration.JwtClaims;
+import com.si.googleads.configuration.JwtService;
+import com.si.googleads.configuration.VerifiedTokenCache;
+import com.si.googleads.revocation.RevocationList;
+import com.si.googleads.user.Role;
+import com.si.googleads.user.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtServiceBenchmark {
+    private JwtService jwtService;
+    private VerifiedTokenCache verifiedTokenCache;
+    private User user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService(new SimpleMeterRegistry(), new RevocationList(null, Duration.ofSeconds(1), Duration.ofSeconds(1)));
+        ReflectionTestUtils.setField(jwtService, "secretKey", "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970");
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 86400000L);
+        ReflectionTestUtils.setField(jwtService, "refreshExpiration", 604800000L);
+        ReflectionTestUtils.invokeMethod(jwtService, "init");
+
+        verifiedTokenCache = new VerifiedTokenCache(true, 10000);
+        user = User.builder().id("6565f1c2a4b0b2a1c8e4d001").email("benchmark@example.com").role(Role.USER).build();
+        token = jwtService.generateToken(user);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtService.generateToken(user);
+    }
+
+    @Benchmark
+    public JwtClaims verifyToken() {
+        return jwtService.verifyToken(token);
+    }
+
+    @Benchmark
+    public JwtClaims verifyTokenCached() {
+        return verifiedTokenCache.get(token, jwtService::verifyToken);
+    }
+}
@@ -3,7 +3,10 @@ package com.si.googleads.advice;
 import com.mongodb.MongoBulkWriteException;
 import com.mongodb.MongoSocketException;
 import com.si.googleads.exceptions.ApiRequestException;
+import com.si.googleads.exceptions.BadRequestException;
 import com.si.googleads.exceptions.DatabaseResourceException;
+import com.si.googleads.exceptions.InvalidTokenException;
+import com.si.googleads.exceptions.ServiceBusyException;
 import com.si.googleads.response.ErrorResponse;
 import org.springframework.core.codec.DecodingException;
 import org.springframework.data.mongodb.UncategorizedMongoDbException;
@@ -104,6 +107,27 @@ public class ApplicationExceptionHandler {
         return new ErrorResponse<>(ex.getMessage());
     }
 
+    // Token Exceptions
+    @ResponseStatus(HttpStatus.UNAUTHORIZED)
+    @ExceptionHandler(InvalidTokenException.class)
+    public ErrorResponse<?> handleInvalidTokenException(InvalidTokenException ex) {
+        return new ErrorResponse<>(ex.getMessage());
+    }
+
+    // Bad Request Exceptions
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(BadRequestException.class)
+    public ErrorResponse<?> handleBadRequestException(BadRequestException ex) {
+        return new ErrorResponse<>(ex.getMessage());
+    }
+
+    // Overload Exceptions
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ExceptionHandler(ServiceBusyException.class)
+    public ErrorResponse<?> handleServiceBusyException(ServiceBusyException ex) {
+        return new ErrorResponse<>(ex.getMessage());
+    }
+
     // Form Validation Exceptions
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     @ExceptionHandler(MethodArgumentNotValidException.class)
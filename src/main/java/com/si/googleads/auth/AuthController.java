@@ -2,6 +2,7 @@ package com.si.googleads.auth;
 
 //import com.si.googleads.account.AccountService;
 //import com.si.googleads.account.AssociatedPropertiesResponse;
+import com.si.googleads.configuration.AppUser;
 import com.si.googleads.response.MessageResponse;
 import com.si.googleads.response.SuccessResponse;
 import jakarta.validation.Valid;
@@ -37,6 +38,22 @@ public class AuthController {
         return ResponseEntity.ok().body(authService.login(request));
     }
 
+    @PostMapping("/refresh")
+    public ResponseEntity<Mono<AuthResponse>> refresh(
+            @RequestBody @Valid RefreshTokenRequest request
+    ) {
+        return ResponseEntity.ok().body(authService.refresh(request));
+    }
+
+    @PostMapping("/logout")
+    public ResponseEntity<Mono<MessageResponse>> logout(
+            Mono<AppUser> caller,
+            @RequestBody(required = false) LogoutRequest request
+    ) {
+        LogoutRequest logoutRequest = request == null ? new LogoutRequest() : request;
+        return ResponseEntity.ok().body(caller.flatMap(appUser -> authService.logout(appUser, logoutRequest)));
+    }
+
     @GetMapping("/google/connect")
     @ResponseStatus(HttpStatus.MOVED_PERMANENTLY)
     public Mono<Void> authorize (ServerHttpResponse response) {
@@ -18,5 +18,6 @@ import lombok.NoArgsConstructor;
 public class AuthResponse {
   private String message;
   private String token;
+  private String refreshToken;
   private UserResponseDto user;
 }
@@ -2,98 +2,168 @@ package com.si.googleads.auth;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.si.googleads.configuration.AppUser;
 import com.si.googleads.configuration.JwtService;
+import com.si.googleads.configuration.PasswordHashingService;
+import com.si.googleads.exceptions.BadRequestException;
+import com.si.googleads.refreshtoken.RefreshTokenService;
 import com.si.googleads.response.MessageResponse;
+import com.si.googleads.revocation.RevocationService;
+import com.si.googleads.token.GoogleTokenCache;
+import com.si.googleads.token.GoogleTokenRateLimiter;
 import com.si.googleads.token.Token;
+import com.si.googleads.token.TokenLeaseService;
+import com.si.googleads.token.TokenRefreshScheduler;
 import com.si.googleads.token.TokenRepository;
+import com.si.googleads.token.TokenWriteBatcher;
 import com.si.googleads.user.Role;
 import com.si.googleads.user.User;
 import com.si.googleads.user.UserRepository;
 import com.si.googleads.user.UserResponseDto;
+import com.si.googleads.util.SingleFlight;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.env.Environment;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
+import java.time.Duration;
 import java.time.Instant;
-import java.util.Map;
-import java.util.Objects;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class AuthService {
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
     private final JwtService jwtService;
     private final Environment env;
-    private final WebClient webClient;
+    private final GoogleTokenClient googleTokenClient;
     private final ObjectMapper objectMapper;
     private final TokenRepository tokenRepository;
+    private final TokenRefreshScheduler tokenRefreshScheduler;
+    private final TokenWriteBatcher tokenWriteBatcher;
+    private final GoogleTokenCache googleTokenCache;
+    private final RefreshTokenService refreshTokenService;
+    private final RevocationService revocationService;
+    private final GoogleTokenRateLimiter googleTokenRateLimiter;
+    private final TokenLeaseService tokenLeaseService;
+    private final SingleFlight<String, Token> refreshesInFlight = new SingleFlight<>();
 
     public Mono<AuthResponse> register(RegisterRequest request) {
-        return userRepository.findByEmail(request.getEmail())
-                .flatMap(user -> Mono.error(new RuntimeException("Email is already registered. Please login instead")))
-                .switchIfEmpty(Mono.defer(() -> {
+        // The unique index on users.email rejects duplicates, so there is no lookup before the insert
+        return passwordHashingService.encode(request.getPassword())
+                .flatMap(encodedPassword -> {
                     Instant now = Instant.now();
 
                     var user = User.builder()
                             .email(request.getEmail())
-                            .password(passwordEncoder.encode(request.getPassword()))
+                            .password(encodedPassword)
                             .role(Role.USER)
                             .createdAt(now)
                             .updatedAt(now)
                             .build();
 
-                    return userRepository.save(user)
-                            .flatMap(savedUser -> {
+                    return userRepository.insert(user)
+                            .onErrorMap(DuplicateKeyException.class, e -> new RuntimeException("Email is already registered. Please login instead"))
+                            .flatMap(savedUser -> refreshTokenService.issue(savedUser).map(refreshToken -> {
                                 UserResponseDto userResponseDto = UserResponseDto.builder()
                                         .id(savedUser.getId())
                                         .email(savedUser.getEmail())
                                         .build();
-                                var jwtToken = jwtService.generateToken(user);
-                                var authResponse = AuthResponse.builder()
+                                var jwtToken = jwtService.generateToken(savedUser);
+                                return AuthResponse.builder()
                                         .token(jwtToken)
+                                        .refreshToken(refreshToken)
                                         .user(userResponseDto)
                                         .message("User registered successfully")
                                         .build();
-                                return Mono.just(authResponse);
-                            });
-                }))
-                .cast(AuthResponse.class);
+                            }));
+                });
     }
 
     public Mono<AuthResponse> login(LoginRequest request) {
         return userRepository.findByEmail(request.getEmail())
-                .flatMap(user -> {
-                    if (passwordEncoder.matches(request.getPassword(), user.getPassword())) {
-                        var jwtToken = jwtService.generateToken(user);
-
-                        UserResponseDto userResponse = UserResponseDto.builder()
-                                .id(user.getId())
-                                .email(user.getEmail())
-                                .build();
-
-                        var res = AuthResponse.builder()
-                                .token(jwtToken)
-                                .user(userResponse)
-                                .message("Login successful")
-                                .build();
-
-                        return Mono.just(res);
-                    } else {
-                        return Mono.error(new RuntimeException("Invalid credentials"));
-                    }
-                })
+                .flatMap(user -> passwordHashingService.matches(request.getPassword(), user.getPassword())
+                        .flatMap(matches -> {
+                            if (matches) {
+                                return refreshTokenService.issue(user).map(refreshToken -> {
+                                    var jwtToken = jwtService.generateToken(user);
+
+                                    UserResponseDto userResponse = UserResponseDto.builder()
+                                            .id(user.getId())
+                                            .email(user.getEmail())
+                                            .build();
+
+                                    return AuthResponse.builder()
+                                            .token(jwtToken)
+                                            .refreshToken(refreshToken)
+                                            .user(userResponse)
+                                            .message("Login successful")
+                                            .build();
+                                });
+                            } else {
+                                return Mono.error(new RuntimeException("Invalid credentials"));
+                            }
+                        }))
                 .switchIfEmpty(Mono.defer(() -> Mono.error(new RuntimeException("We did not find any user with email " + request.getEmail()))));
     }
 
+    // The security filter already verified the access token; its subject, id and expiry travel on the principal
+    public Mono<MessageResponse> logout(AppUser caller, LogoutRequest request) {
+        return Mono.defer(() -> {
+                    String email = caller.getEmail();
+
+                    // Only an explicit request signs the user out everywhere. Without the refresh token its family
+                    // cannot be found, and a token issued before token ids existed cannot be revoked on its own
+                    if (!request.isAllDevices() && request.getRefreshToken() == null) {
+                        return Mono.error(new BadRequestException("refreshToken is required unless allDevices is set"));
+                    }
+                    if (!request.isAllDevices() && caller.getTokenId() == null) {
+                        return Mono.error(new BadRequestException("This session can only be ended with allDevices set, please login again"));
+                    }
+
+                    // The refresh token is validated while its family is ended, before the access token is revoked,
+                    // so an invalid refresh token fails the logout without revoking anything
+                    Mono<Void> revocation = request.isAllDevices()
+                            ? revocationService.revokeSubject(email, jwtService.getAccessTokenLifetime())
+                                    .then(refreshTokenService.revokeAll(email))
+                            : refreshTokenService.revoke(request.getRefreshToken(), email)
+                                    .then(revocationService.revokeToken(caller.getTokenId(), caller.getExpiresAt()).then());
+
+                    return revocation.thenReturn(new MessageResponse("Logged out successfully"));
+                });
+    }
+
+    // Signature check plus one conditional update: no user lookup and no password hashing
+    public Mono<AuthResponse> refresh(RefreshTokenRequest request) {
+        return refreshTokenService.rotate(request.getRefreshToken())
+                .map(family -> {
+                    User user = family.toUser();
+
+                    UserResponseDto userResponse = UserResponseDto.builder()
+                            .id(user.getId())
+                            .email(user.getEmail())
+                            .build();
+
+                    return AuthResponse.builder()
+                            .token(jwtService.generateToken(user))
+                            .refreshToken(refreshTokenService.sign(family))
+                            .user(userResponse)
+                            .message("Token refreshed")
+                            .build();
+                });
+    }
+
     public String getAuthorizationUrl() {
         return UriComponentsBuilder.fromUriString("https://accounts.google.com/o/oauth2/auth")
                 .queryParam("response_type", "code")
@@ -105,37 +175,10 @@ public class AuthService {
                 .toUriString();
     }
 
-    private String generateTokenRequestUrl() {
-        return UriComponentsBuilder.fromUriString(Objects.requireNonNull(env.getProperty("google_oauth_access_token_uri")))
-                .queryParam("client_id", env.getProperty("google_oauth_client_id"))
-                .queryParam("client_secret", env.getProperty("google_oauth_client_secret"))
-                .toUriString();
-    }
-
     public Mono<MessageResponse> getAccessToken(String authorizationCode, String authUserEmail) {
-        // Todo: Change to value in env
-        Map<String, String> tokenRequestBody = Map.of(
-                "grant_type", "authorization_code",
-                "code", authorizationCode,
-                "redirect_uri", Objects.requireNonNull(env.getProperty("google_oauth_redirect_uri"))
-        );
-
-        try {
-            WebClient client = WebClient.builder().build();
-            return client.post()
-                    .uri(generateTokenRequestUrl())
-                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-                    .bodyValue(tokenRequestBody)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .flatMap(googleResponseString -> handleTokenResponse(googleResponseString, authUserEmail))
-                    .onErrorResume(error -> {
-//                        error.printStackTrace();
-                        return Mono.error(new RuntimeException("Error getting credentials from Google. Please try again."));
-                    });
-        } catch (Exception e) {
-            return Mono.error(new RuntimeException("Error in processing the request", e));
-        }
+        return googleTokenClient.exchangeAuthorizationCode(authorizationCode)
+                .flatMap(googleResponseString -> handleTokenResponse(googleResponseString, authUserEmail))
+                .onErrorResume(error -> Mono.error(new RuntimeException("Error getting credentials from Google. Please try again.")));
     }
 
     private Mono<MessageResponse> handleTokenResponse(String googleResponseString, String authUserEmail) {
@@ -151,6 +194,7 @@ public class AuthService {
                     .refreshToken(tokenResponse.getRefreshToken())
                     .scope(tokenResponse.getScope())
                     .expiresIn(tokenResponse.getExpiresIn())
+                    .expiresAt(expiresAt(now, tokenResponse.getExpiresIn()))
                     .createdAt(now)
                     .updatedAt(now)
                     .build();
@@ -158,64 +202,181 @@ public class AuthService {
             return tokenRepository.findByEmail(authUserEmail)
                     .flatMap(existingToken -> {
                         existingToken.setAccessToken(tokenResponse.getAccessToken());
+                        existingToken.setExpiresIn(tokenResponse.getExpiresIn());
+                        existingToken.setExpiresAt(expiresAt(now, tokenResponse.getExpiresIn()));
+                        if (tokenResponse.getRefreshToken() != null) {
+                            existingToken.setRefreshToken(tokenResponse.getRefreshToken());
+                        }
                         existingToken.setUpdatedAt(now);
-                        return tokenRepository.save(existingToken)
-                                .map(savedToken -> MessageResponse.builder().message("Connected successfully.").build());
+                        return tokenRepository.save(existingToken);
                     })
-                    .switchIfEmpty(Mono.defer(() -> tokenRepository.save(googleAuthToken)
-                            .map(savedToken -> MessageResponse.builder().message("Connected successfully.").build())));
+                    .switchIfEmpty(Mono.defer(() -> tokenRepository.save(googleAuthToken)))
+                    .doOnNext(savedToken -> {
+                        googleTokenCache.put(savedToken);
+                        tokenRefreshScheduler.schedule(savedToken);
+                    })
+                    .map(savedToken -> MessageResponse.builder().message("Connected successfully.").build());
         } catch (JsonProcessingException e) {
             return Mono.error(new RuntimeException("Failed to deserialize JSON response body", e));
         }
     }
 
+    // Concurrent refreshes of the same user's token share a single Google call and write;
+    // the caller must already hold the token's refresh lease
     public Mono<Token> refreshToken(Token token) {
-        Map<String, String> refreshTokenRequestBody = Map.of(
-                "grant_type", "refresh_token",
-                "refresh_token", token.getRefreshToken()
-        );
+        return refreshesInFlight.execute(token.getEmail(), () -> doRefreshToken(token));
+    }
+
+    private Mono<Token> doRefreshToken(Token token) {
+        // Every attempt, retries included, takes a permit from the outbound rate limit
+        return googleTokenRateLimiter.acquire()
+                .then(Mono.defer(() -> googleTokenClient.refresh(token.getRefreshToken())))
+                .retryWhen(googleRetry())
+                .flatMap(googleResponseString -> handleRefreshTokenResponse(googleResponseString, token))
+                .doOnError(error -> log.error("Error getting credentials from Google for token " + token.getId() + " with user " + token.getEmail()));
+    }
+
+    // Exponential backoff with jitter, but never sooner than a Retry-After sent with a 429 or 503. All retries
+    // together stay within half the refresh lease, so the token is never refreshed again by a node that took
+    // over an expired lease; a wait that does not fit fails the refresh, which releases the lease and reschedules it
+    private Retry googleRetry() {
+        long maxRetries = env.getProperty("token_refresh_max_retries", Long.class, 3L);
+        Duration backoff = env.getProperty("token_refresh_retry_backoff", Duration.class, Duration.ofSeconds(1));
+        Duration retryBudget = env.getProperty("token_refresh_lease_duration", Duration.class, Duration.ofMinutes(2)).dividedBy(2);
+
+        return Retry.from(signals -> {
+            long deadline = System.nanoTime() + retryBudget.toNanos();
+            return signals.concatMap(signal -> {
+                Throwable error = signal.failure();
+                if (signal.totalRetries() >= maxRetries || !isRetryableGoogleError(error)) {
+                    return Mono.error(error);
+                }
+
+                Duration exponential = backoff.multipliedBy(1L << signal.totalRetries());
+                Duration jittered = exponential.plusMillis(ThreadLocalRandom.current().nextLong(exponential.toMillis() / 2 + 1));
+                Duration retryAfter = retryAfter(error);
+                Duration delay = retryAfter.compareTo(jittered) > 0 ? retryAfter : jittered;
+                if (delay.toNanos() > deadline - System.nanoTime()) {
+                    return Mono.error(error);
+                }
+                return Mono.delay(delay);
+            });
+        });
+    }
 
-        String jsonBody;
+    private static Duration retryAfter(Throwable error) {
+        if (!(error instanceof WebClientResponseException responseException)
+                || (responseException.getStatusCode().value() != 429 && responseException.getStatusCode().value() != 503)) {
+            return Duration.ZERO;
+        }
 
+        String value = responseException.getHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+        if (value == null) {
+            return Duration.ZERO;
+        }
         try {
-            jsonBody = objectMapper.writeValueAsString(refreshTokenRequestBody);
-        } catch (JsonProcessingException e) {
-            log.error("Failed to serialize JSON request body");
-            return Mono.empty();
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value.trim())));
+        } catch (NumberFormatException e) {
+            try {
+                Duration untilDate = Duration.between(Instant.now(), ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant());
+                return untilDate.isNegative() ? Duration.ZERO : untilDate;
+            } catch (RuntimeException ignored) {
+                return Duration.ZERO;
+            }
         }
+    }
 
-        return webClient.post()
-            .uri(generateTokenRequestUrl())
-                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-                .bodyValue(jsonBody)
-                .retrieve()
-                .bodyToMono(String.class)
-                .flatMap(googleResponseString -> handleRefreshTokenResponse(googleResponseString, token))
-                .onErrorResume(error -> {
-//                    error.printStackTrace();
-                    log.error("Error getting credentials from Google for token " + token.getId() + " with user " + token.getEmail());
-                    return Mono.empty();
-                });
+    // Google asks clients to back off on 429 and 5xx; connection failures are retried the same way
+    private static boolean isRetryableGoogleError(Throwable error) {
+        if (error instanceof WebClientResponseException responseException) {
+            return responseException.getStatusCode().value() == 429 || responseException.getStatusCode().is5xxServerError();
+        }
+        return error instanceof WebClientRequestException;
     }
 
     private Mono<Token> handleRefreshTokenResponse(String googleResponseString, Token token) {
         try {
             AccessTokenResponse newTokenResponse = objectMapper.readValue(googleResponseString, AccessTokenResponse.class);
 
-            token.setAccessToken(newTokenResponse.getAccessToken());
-            token.setExpiresIn(newTokenResponse.getExpiresIn());
-            token.setUpdatedAt(Instant.now());
+            Instant now = Instant.now();
+
+            // The token may be the cached instance readers are using, so the refresh goes into a copy that replaces it
+            Token refreshed = token.toBuilder()
+                    .accessToken(newTokenResponse.getAccessToken())
+                    .expiresIn(newTokenResponse.getExpiresIn())
+                    .expiresAt(expiresAt(now, newTokenResponse.getExpiresIn()))
+                    .updatedAt(now)
+                    .leaseOwner(null)
+                    .leaseUntil(null)
+                    .build();
 
-            return tokenRepository.save(token);
+            return tokenWriteBatcher.submit(refreshed)
+                    .doOnNext(savedToken -> {
+                        googleTokenCache.put(savedToken);
+                        tokenRefreshScheduler.schedule(savedToken);
+                    });
         } catch (JsonProcessingException e) {
-            log.error("Failed to deserialize JSON response body " + token.getId() + " with user " + token.getEmail());
-            return Mono.empty();
+            return Mono.error(new RuntimeException("Failed to deserialize JSON response body for token " + token.getId(), e));
         }
     }
 
+    private static Instant expiresAt(Instant issuedAt, Duration expiresIn) {
+        return issuedAt == null || expiresIn == null ? null : issuedAt.plus(expiresIn);
+    }
+
     public Mono<String> getUserToken(String userEmail) {
-        return tokenRepository.findByEmail(userEmail)
-                .map(Token::getAccessToken)
-                .onErrorResume(error -> Mono.error(new RuntimeException("Token not found. User account is not connected to google.")));
+        return googleTokenCache.get(userEmail, tokenRepository::findByEmail)
+                .onErrorResume(error -> Mono.error(new RuntimeException("Token not found. User account is not connected to google.")))
+                .flatMap(this::currentAccessToken);
+    }
+
+    // Inside the soft expiry window the current token is returned and a refresh starts in the background;
+    // only a token that is already expired makes the caller wait for the refresh
+    private Mono<String> currentAccessToken(Token token) {
+        Instant expiresAt = token.getExpiresAt() != null ? token.getExpiresAt() : expiresAt(token.getUpdatedAt(), token.getExpiresIn());
+        if (expiresAt == null || token.getRefreshToken() == null) {
+            return Mono.just(token.getAccessToken());
+        }
+
+        Instant now = Instant.now();
+        Duration softExpiryWindow = softExpiryWindow();
+        if (!now.isBefore(expiresAt)) {
+            return refreshOnRead(token, now.plus(softExpiryWindow))
+                    .switchIfEmpty(Mono.defer(() -> awaitRefreshElsewhere(token)))
+                    .map(Token::getAccessToken);
+        }
+
+        if (!now.isBefore(expiresAt.minus(softExpiryWindow)) && googleTokenCache.tryStartBackgroundRefresh(token.getEmail())) {
+            refreshOnRead(token, now.plus(softExpiryWindow)).subscribe(
+                    refreshed -> log.debug("Refreshed Google token ahead of expiry for token " + refreshed.getId()),
+                    error -> log.warn("Background refresh failed for token " + token.getId() + ": " + error.getMessage()));
+        }
+        return Mono.just(token.getAccessToken());
+    }
+
+    // Kept inside token_refresh_window so the scheduler, not readers, refreshes tokens in the normal case
+    private Duration softExpiryWindow() {
+        Duration refreshWindow = env.getProperty("token_refresh_window", Duration.class, Duration.ofMinutes(5));
+        Duration softExpiryWindow = env.getProperty("google_token_soft_expiry_window", Duration.class, Duration.ofMinutes(3));
+        return softExpiryWindow.compareTo(refreshWindow) < 0 ? softExpiryWindow : refreshWindow;
+    }
+
+    // Takes the same Mongo lease as the scheduled refresh; empty if another node holds it or already refreshed
+    private Mono<Token> refreshOnRead(Token token, Instant dueCutoff) {
+        return tokenLeaseService.claim(token.getId(), dueCutoff)
+                .flatMap(claimed -> refreshToken(claimed)
+                        .onErrorResume(error -> tokenLeaseService.release(claimed.getId())
+                                .onErrorResume(releaseError -> Mono.empty())
+                                .then(Mono.error(error))));
+    }
+
+    // The token is expired and its lease is held elsewhere, so wait for the holder to store the refresh
+    private Mono<Token> awaitRefreshElsewhere(Token token) {
+        return tokenRepository.findById(token.getId())
+                .filter(current -> current.getExpiresAt() != null && Instant.now().isBefore(current.getExpiresAt()))
+                // Polls for up to about five seconds
+                .repeatWhenEmpty(25, attempts -> attempts.delayElements(Duration.ofMillis(200)))
+                .doOnNext(googleTokenCache::put)
+                .switchIfEmpty(Mono.error(new RuntimeException("Google token for " + token.getEmail() + " is being refreshed, try again shortly.")));
     }
 }
@@ -0,0 +1,86 @@
+package com.si.googleads.auth;
+
+import com.si.googleads.jfr.GoogleTokenCallEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.env.Environment;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.Objects;
+
+@Component
+@RequiredArgsConstructor
+public class GoogleTokenClient {
+    private final WebClient googleOAuthWebClient;
+    private final Environment env;
+    private final MeterRegistry meterRegistry;
+
+    public Mono<String> exchangeAuthorizationCode(String authorizationCode) {
+        return requestToken("authorization_code", Map.of(
+                "grant_type", "authorization_code",
+                "code", authorizationCode,
+                "redirect_uri", Objects.requireNonNull(env.getProperty("google_oauth_redirect_uri"))
+        ));
+    }
+
+    public Mono<String> refresh(String refreshToken) {
+        return requestToken("refresh_token", Map.of(
+                "grant_type", "refresh_token",
+                "refresh_token", refreshToken
+        ));
+    }
+
+    private Mono<String> requestToken(String grantType, Map<String, String> body) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            GoogleTokenCallEvent event = new GoogleTokenCallEvent();
+            event.begin();
+            return googleOAuthWebClient.post()
+                    .uri(generateTokenRequestUri())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(body)
+                    .retrieve()
+                    .bodyToMono(String.class)
+                    .doOnSuccess(response -> {
+                        sample.stop(requestTimer(grantType, "200", "none"));
+                        commit(event, grantType, 200);
+                    })
+                    .doOnError(error -> {
+                        int status = error instanceof WebClientResponseException e ? e.getStatusCode().value() : 0;
+                        sample.stop(requestTimer(grantType, status == 0 ? "none" : String.valueOf(status), error.getClass().getSimpleName()));
+                        commit(event, grantType, status);
+                    });
+        });
+    }
+
+    private static void commit(GoogleTokenCallEvent event, String grantType, int status) {
+        if (event.shouldCommit()) {
+            event.grantType = grantType;
+            event.status = status;
+            event.commit();
+        }
+    }
+
+    private Timer requestTimer(String grantType, String status, String exception) {
+        return meterRegistry.timer("google.oauth.token.requests",
+                "grant_type", grantType, "status", status, "exception", exception);
+    }
+
+    // A URI rather than a template, so the client secret never ends up in the http.client.requests uri tag
+    private URI generateTokenRequestUri() {
+        return UriComponentsBuilder.fromUriString(Objects.requireNonNull(env.getProperty("google_oauth_access_token_uri")))
+                .queryParam("client_id", env.getProperty("google_oauth_client_id"))
+                .queryParam("client_secret", env.getProperty("google_oauth_client_secret"))
+                .encode()
+                .build()
+                .toUri();
+    }
+}
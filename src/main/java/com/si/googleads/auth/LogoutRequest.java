@@ -0,0 +1,17 @@
+package com.si.googleads.auth;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class LogoutRequest {
+    private String refreshToken;
+
+    // Signs the user out everywhere, not just the calling client
+    private boolean allDevices;
+}
@@ -2,32 +2,56 @@ package com.si.googleads.configuration;
 
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 
 import java.io.Serial;
+import java.time.Instant;
 import java.util.Collection;
 import java.util.List;
 
+// Authenticated caller built from verified JWT claims alone; the name is the email so Principal::getName keeps working
 public class AppUser implements Authentication {
     @Serial
     private static final long serialVersionUID = 6861381095901879822L;
+    private final String email;
     private final String userId;
+    // Id and expiry of the access token the caller authenticated with, so it can be revoked without parsing it again
+    private final String tokenId;
+    private final Instant expiresAt;
     private boolean authenticated = true;
-    private final List<SimpleGrantedAuthority> roles;
+    private final List<? extends GrantedAuthority> authorities;
 
-    public AppUser(String userId, List<SimpleGrantedAuthority> roles) {
+    public AppUser(String email, String userId, String tokenId, Instant expiresAt, List<? extends GrantedAuthority> authorities) {
+        this.email = email;
         this.userId = userId;
-        this.roles = roles;
+        this.tokenId = tokenId;
+        this.expiresAt = expiresAt;
+        this.authorities = authorities;
+    }
+
+    public String getEmail() {
+        return this.email;
+    }
+
+    public String getUserId() {
+        return this.userId;
+    }
+
+    public String getTokenId() {
+        return this.tokenId;
+    }
+
+    public Instant getExpiresAt() {
+        return this.expiresAt;
     }
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        return this.roles;
+        return this.authorities;
     }
 
     @Override
     public Object getCredentials() {
-        return this.userId;
+        return null;
     }
 
     @Override
@@ -37,7 +61,7 @@ public class AppUser implements Authentication {
 
     @Override
     public Object getPrincipal() {
-        return this.userId;
+        return this.email;
     }
 
     @Override
@@ -52,6 +76,6 @@ public class AppUser implements Authentication {
 
     @Override
     public String getName() {
-        return this.userId;
+        return this.email;
     }
 }
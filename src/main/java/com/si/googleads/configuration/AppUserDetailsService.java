@@ -1,26 +1,54 @@
 package com.si.googleads.configuration;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.si.googleads.user.UserRepository;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+
 @Service
-@RequiredArgsConstructor
-public class AppUserDetailsService implements ReactiveUserDetailsService {
+public class AppUserDetailsService implements ReactiveUserDetailsService, MeterBinder {
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final AsyncCache<String, UserDetails> userDetailsCache;
+
+    public AppUserDetailsService(UserRepository userRepository,
+                                 @Value("${user_details_cache_max_size:10000}") long maxSize,
+                                 @Value("${user_details_cache_ttl:PT5M}") Duration ttl) {
+        this.userRepository = userRepository;
+        this.userDetailsCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+    }
 
     @Override
     public Mono<UserDetails> findByUsername(String username) {
-        return userRepository.findByEmail(username)
-                .map(user -> org.springframework.security.core.userdetails.User.withUsername(user.getEmail())
-                        .password(passwordEncoder.encode(user.getPassword()))
-                        .build())
+        // The stored password is already a BCrypt hash, so it is passed through as is
+        return Mono.fromFuture(() -> userDetailsCache.get(username, (email, executor) -> userRepository.findByEmail(email)
+                                .map(user -> org.springframework.security.core.userdetails.User.withUsername(user.getEmail())
+                                        .password(user.getPassword())
+                                        .build())
+                                .toFuture()),
+                        true)
                 .switchIfEmpty(Mono.error(new UsernameNotFoundException("User not found")));
     }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, userDetailsCache, "user_details");
+    }
+
+    public void evict(String email) {
+        userDetailsCache.synchronous().invalidate(email);
+    }
 }
@@ -1,13 +1,12 @@
 package com.si.googleads.configuration;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.core.env.Environment;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
-import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
 @Configuration
 public class ApplicationConfiguration {
@@ -17,11 +16,13 @@ public class ApplicationConfiguration {
         return new BCryptPasswordEncoder();
     }
 
-    @Bean
-    public WebClient webClient() {
-        return WebClient.builder()
-                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-                .build();
+    @Bean(destroyMethod = "dispose")
+    public Scheduler passwordHashingScheduler(
+            @Value("${password_hashing_threads:4}") int threads,
+            @Value("${password_hashing_queue_size:100}") int queueSize) {
+        // The queued task cap applies to each worker, so the total queue size is split across the threads
+        int queuedPerThread = Math.max(1, (queueSize + threads - 1) / threads);
+        return Schedulers.newBoundedElastic(threads, queuedPerThread, "password-hashing");
     }
 }
 
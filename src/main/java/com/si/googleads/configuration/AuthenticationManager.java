@@ -1,33 +1,46 @@
 package com.si.googleads.configuration;
 
+import com.si.googleads.revocation.RevocationList;
+import com.si.googleads.tracing.RequestTrace;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.ReactiveAuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 @Component
 @RequiredArgsConstructor
 public class AuthenticationManager implements ReactiveAuthenticationManager {
     private final JwtService jwtService;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final RevocationList revocationList;
+
     @Override
     public Mono<Authentication> authenticate(Authentication authentication) {
-        String username;
+        return RequestTrace.stage("authenticate", Mono.defer(() -> verify(authentication)));
+    }
+
+    private Mono<Authentication> verify(Authentication authentication) {
         String authToken = authentication.getCredentials().toString();
+        JwtClaims claims;
 
         try {
-            username = jwtService.getUsernameFromToken(authToken);
+            claims = verifiedTokenCache.get(authToken, jwtService::verifyToken);
         } catch (Exception e) {
-            username = null;
+            claims = null;
         }
 
-        if (username != null && !jwtService.isTokenValid(authToken)) {
-            UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(username, username, null);
-            SecurityContextHolder.getContext().setAuthentication(new AppUser(username, null));
+        // Refresh tokens are only accepted by the refresh endpoint, never as bearer credentials
+        if (claims != null && claims.getSubject() != null && !claims.isRefreshToken() && !revocationList.isRevoked(claims)) {
+            // Authorities are the roles the token was issued with, the same names User.getAuthorities uses
+            List<SimpleGrantedAuthority> authorities = claims.getRoles().stream()
+                    .map(SimpleGrantedAuthority::new)
+                    .toList();
 
-            return Mono.just(auth);
+            return Mono.just(new AppUser(claims.getSubject(), claims.getUserId(), claims.getTokenId(), claims.getExpiration(), authorities));
         } else {
             return Mono.empty();
         }
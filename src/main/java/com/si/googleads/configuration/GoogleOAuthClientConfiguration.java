@@ -0,0 +1,56 @@
+package com.si.googleads.configuration;
+
+import com.si.googleads.tracing.RequestTrace;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class GoogleOAuthClientConfiguration {
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider googleOAuthConnectionProvider(Environment env, GoogleOAuthPoolMetrics poolMetrics) {
+        return ConnectionProvider.builder("google-oauth")
+                .maxConnections(env.getProperty("google_oauth_pool_max_connections", Integer.class, 50))
+                .pendingAcquireMaxCount(env.getProperty("google_oauth_pool_pending_acquire_max", Integer.class, 500))
+                .pendingAcquireTimeout(env.getProperty("google_oauth_pool_pending_acquire_timeout", Duration.class, Duration.ofSeconds(5)))
+                .maxIdleTime(env.getProperty("google_oauth_pool_max_idle_time", Duration.class, Duration.ofSeconds(30)))
+                .maxLifeTime(env.getProperty("google_oauth_pool_max_life_time", Duration.class, Duration.ofMinutes(5)))
+                .evictInBackground(env.getProperty("google_oauth_pool_evict_interval", Duration.class, Duration.ofSeconds(30)))
+                .metrics(true, () -> poolMetrics)
+                .build();
+    }
+
+    @Bean
+    public WebClient googleOAuthWebClient(WebClient.Builder builder, ConnectionProvider googleOAuthConnectionProvider, Environment env) {
+        Duration connectTimeout = env.getProperty("google_oauth_connect_timeout", Duration.class, Duration.ofSeconds(3));
+        Duration readTimeout = env.getProperty("google_oauth_read_timeout", Duration.class, Duration.ofSeconds(10));
+
+        HttpClient httpClient = HttpClient.create(googleOAuthConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .keepAlive(true)
+                .responseTimeout(env.getProperty("google_oauth_response_timeout", Duration.class, Duration.ofSeconds(10)))
+                .doOnConnected(connection -> connection.addHandlerLast(new ReadTimeoutHandler(readTimeout.toMillis(), TimeUnit.MILLISECONDS)));
+
+        // HTTP/2 is negotiated over TLS via ALPN; plain http endpoints fall back to HTTP/1.1
+        if (env.getProperty("google_oauth_http2_enabled", Boolean.class, true)) {
+            httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11);
+        }
+
+        return builder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .filter(RequestTrace.exchangeFilter("google_oauth"))
+                .build();
+    }
+}
@@ -0,0 +1,52 @@
+package com.si.googleads.configuration;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+import reactor.netty.resources.ConnectionPoolMetrics;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.SocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToIntFunction;
+
+// Receives the per-remote-address pool metrics from Reactor Netty without requiring Micrometer
+@Component
+public class GoogleOAuthPoolMetrics implements ConnectionProvider.MeterRegistrar, MeterBinder {
+    private final Map<String, ConnectionPoolMetrics> pools = new ConcurrentHashMap<>();
+
+    @Override
+    public void registerMetrics(String poolName, String id, SocketAddress remoteAddress, ConnectionPoolMetrics metrics) {
+        pools.put(id, metrics);
+    }
+
+    @Override
+    public void deRegisterMetrics(String poolName, String id, SocketAddress remoteAddress) {
+        pools.remove(id);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("google.oauth.pool.active", this, GoogleOAuthPoolMetrics::activeConnections).register(registry);
+        Gauge.builder("google.oauth.pool.idle", this, GoogleOAuthPoolMetrics::idleConnections).register(registry);
+        Gauge.builder("google.oauth.pool.pending", this, GoogleOAuthPoolMetrics::pendingAcquires).register(registry);
+    }
+
+    public int activeConnections() {
+        return sum(ConnectionPoolMetrics::acquiredSize);
+    }
+
+    public int idleConnections() {
+        return sum(ConnectionPoolMetrics::idleSize);
+    }
+
+    public int pendingAcquires() {
+        return sum(ConnectionPoolMetrics::pendingAcquireSize);
+    }
+
+    private int sum(ToIntFunction<ConnectionPoolMetrics> metric) {
+        return pools.values().stream().mapToInt(metric).sum();
+    }
+}
@@ -0,0 +1,26 @@
+package com.si.googleads.configuration;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.List;
+
+@Getter
+@Builder
+@AllArgsConstructor
+public class JwtClaims {
+    private final String subject;
+    private final String userId;
+    private final Instant issuedAt;
+    private final Instant expiration;
+    private final List<String> roles;
+    private final String tokenId;
+    private final String familyId;
+    private final String tokenUse;
+
+    public boolean isRefreshToken() {
+        return JwtService.REFRESH_TOKEN_USE.equals(tokenUse);
+    }
+}
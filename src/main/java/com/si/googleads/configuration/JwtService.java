@@ -1,20 +1,29 @@
 package com.si.googleads.configuration;
 
+import com.si.googleads.revocation.RevocationList;
 import com.si.googleads.user.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Meter.MeterProvider;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import jakarta.annotation.PostConstruct;
 import java.security.Key;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.UUID;
 
 @Component
 public class JwtService {
@@ -25,17 +34,59 @@ public class JwtService {
   @Value("${jwt_refresh_expiration_in_days}")
   private long refreshExpiration;
 
-  public String getUsernameFromToken(String token) {
-    return getClaimFromToken(token, Claims::getSubject);
+  public static final String ROLES_CLAIM = "roles";
+  public static final String USER_ID_CLAIM = "uid";
+  public static final String TOKEN_USE_CLAIM = "token_use";
+  public static final String FAMILY_CLAIM = "fid";
+  public static final String REFRESH_TOKEN_USE = "refresh";
+
+  private final MeterRegistry meterRegistry;
+  private final RevocationList revocationList;
+  private final MeterProvider<Timer> verifyTimer;
+  private final MeterProvider<Timer> issueTimer;
+
+  private Key signInKey;
+  private JwtParser jwtParser;
+
+  public JwtService(MeterRegistry meterRegistry, RevocationList revocationList) {
+    this.meterRegistry = meterRegistry;
+    this.revocationList = revocationList;
+    this.verifyTimer = Timer.builder("jwt.verify").withRegistry(meterRegistry);
+    this.issueTimer = Timer.builder("jwt.issue").withRegistry(meterRegistry);
   }
 
-  public Date getExpirationDateFromToken(String token) {
-    return getClaimFromToken(token, Claims::getExpiration);
+  @PostConstruct
+  void init() {
+    byte[] keyBytes = Decoders.BASE64.decode(secretKey);
+    signInKey = Keys.hmacShaKeyFor(keyBytes);
+    jwtParser = Jwts.parserBuilder().setSigningKey(signInKey).build();
   }
 
-  public <T> T getClaimFromToken(String token, Function<Claims, T> claimsResolver) {
-    final Claims claims = getAllClaimsFromToken(token);
-    return claimsResolver.apply(claims);
+  // Verifies signature and expiry once and returns everything the security filter needs
+  public JwtClaims verifyToken(String token) {
+    Timer.Sample sample = Timer.start(meterRegistry);
+    String outcome = "invalid";
+    try {
+      Claims claims = getAllClaimsFromToken(token);
+      List<?> roles = claims.get(ROLES_CLAIM, List.class);
+      JwtClaims verified = JwtClaims.builder()
+              .subject(claims.getSubject())
+              .userId(claims.get(USER_ID_CLAIM, String.class))
+              .issuedAt(claims.getIssuedAt() == null ? null : claims.getIssuedAt().toInstant())
+              .expiration(claims.getExpiration().toInstant())
+              .roles(roles == null ? List.of() : roles.stream().map(String::valueOf).toList())
+              .tokenId(claims.getId())
+              .familyId(claims.get(FAMILY_CLAIM, String.class))
+              .tokenUse(claims.get(TOKEN_USE_CLAIM, String.class))
+              .build();
+      outcome = "valid";
+      return verified;
+    } catch (ExpiredJwtException e) {
+      outcome = "expired";
+      throw e;
+    } finally {
+      sample.stop(verifyTimer.withTags("outcome", outcome));
+    }
   }
 
   public String generateToken(User user) {
@@ -45,58 +96,62 @@ public class JwtService {
   public String generateToken(
           Map<String, Object> extraClaims,
           User user) {
-    return buildToken(extraClaims, user, jwtExpiration);
+    return issueTimer.withTags("type", "access").record(() -> buildToken(extraClaims, user, jwtExpiration));
   }
 
+  // Refresh tokens name their family and their own id so each one can be exchanged exactly once
   public String generateRefreshToken(
-          User user) {
-    return buildToken(new HashMap<>(), user, refreshExpiration);
-  }
-
-  public boolean isTokenValid(String token) {
-    return isTokenExpired(token);
+          User user,
+          String familyId,
+          String tokenId) {
+    Map<String, Object> claims = new HashMap<>();
+    claims.put(TOKEN_USE_CLAIM, REFRESH_TOKEN_USE);
+    claims.put(FAMILY_CLAIM, familyId);
+    claims.put(Claims.ID, tokenId);
+    return issueTimer.withTags("type", "refresh").record(() -> buildToken(claims, user, refreshExpiration));
   }
 
-  private boolean isTokenExpired(String token) {
-    return getExpiration(token).before(new Date());
+  public Duration getAccessTokenLifetime() {
+    return Duration.ofMillis(jwtExpiration);
   }
 
-  private Date getExpiration(String token) {
-    return getClaimFromToken(token, Claims::getExpiration);
+  public Duration getRefreshTokenLifetime() {
+    return Duration.ofMillis(refreshExpiration);
   }
 
   private Claims getAllClaimsFromToken(String token) {
-    return Jwts
-            .parserBuilder()
-            .setSigningKey(getSignInKey())
-            .build()
+    return jwtParser
             .parseClaimsJws(token)
             .getBody();
   }
 
-  private Key getSignInKey() {
-    byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-    return Keys.hmacShaKeyFor(keyBytes);
-  }
-
   private String buildToken(
           Map<String, Object> extraClaims,
           User user,
           long expiration) {
+    // Role and user id travel in the token, so authorization never needs the user document
+    Map<String, Object> claims = new HashMap<>(extraClaims);
+    claims.put(ROLES_CLAIM, user.getRole() == null ? List.of() : List.of(user.getRole().name()));
+    claims.put(USER_ID_CLAIM, user.getId());
+
     return Jwts
             .builder()
-            .setClaims(extraClaims)
+            .setClaims(claims)
+            // Every token gets an id so it can be revoked on its own
+            .setId((String) claims.computeIfAbsent(Claims.ID, key -> UUID.randomUUID().toString()))
             .setSubject(user.getEmail())
-            .setIssuedAt(new Date(System.currentTimeMillis()))
+            .setIssuedAt(issuedAt(user.getEmail()))
             .setExpiration(new Date(System.currentTimeMillis() + expiration))
-            .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+            .signWith(signInKey, SignatureAlgorithm.HS256)
             .compact();
   }
 
-  // validate token
-  public Boolean validateToken(String token, UserDetails userDetails) {
-    final String username = getUsernameFromToken(token);
-    return (username.equals(userDetails.getUsername()) && isTokenExpired(token));
+  // A token issued in the same second as a revocation of its subject would share the revoked iat,
+  // so it is dated at the revocation cutoff instead
+  private Date issuedAt(String subject) {
+    Instant now = Instant.now();
+    Instant revokedBefore = revocationList.revokedBefore(subject);
+    return Date.from(revokedBefore != null && revokedBefore.isAfter(now) ? revokedBefore : now);
   }
 
 }
@@ -0,0 +1,104 @@
+package com.si.googleads.configuration;
+
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MongoIndexInitializer {
+    private static final List<IndexDefinition> INDEXES = List.of(
+            new IndexDefinition("users", new Index().on("email", Sort.Direction.ASC).unique().named("email")),
+            new IndexDefinition("tokens", new Index().on("email", Sort.Direction.ASC).unique().named("email")),
+            new IndexDefinition("tokens", new Index().on("expiresAt", Sort.Direction.ASC).named("expiresAt")),
+            new IndexDefinition("refresh_tokens", new Index().on("expiresAt", Sort.Direction.ASC).expire(Duration.ZERO).named("expiresAt")),
+            new IndexDefinition("refresh_tokens", new Index().on("email", Sort.Direction.ASC).named("email")),
+            new IndexDefinition("revocations", new Index().on("expiresAt", Sort.Direction.ASC).expire(Duration.ZERO).named("expiresAt"))
+    );
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    @Value("${mongo_index_creation_enabled:true}")
+    private boolean creationEnabled;
+    @Value("${mongo_index_fail_on_error:false}")
+    private boolean failOnError;
+    @Value("${mongo_index_timeout:PT30S}")
+    private Duration timeout;
+
+    @PostConstruct
+    void initializeIndexes() {
+        Mono<List<String>> problems = Flux.fromIterable(INDEXES)
+                .concatMap(this::ensureIndex)
+                .collectList();
+
+        if (!failOnError) {
+            problems.subscribe(this::report, error -> log.warn("Could not verify Mongo indexes: {}", error.getMessage()));
+            return;
+        }
+
+        List<String> found = problems.block(timeout);
+        report(found);
+        if (found != null && !found.isEmpty()) {
+            throw new IllegalStateException("Mongo indexes are missing or conflicting: " + found);
+        }
+    }
+
+    private Mono<String> ensureIndex(IndexDefinition definition) {
+        Mono<String> create = creationEnabled
+                ? mongoTemplate.indexOps(definition.getCollection()).ensureIndex(definition.getIndex())
+                        .then(Mono.<String>empty())
+                        .onErrorResume(e -> Mono.just(definition.describe() + " could not be created: " + e.getMessage()))
+                : Mono.empty();
+
+        return create.switchIfEmpty(Mono.defer(() -> verifyIndex(definition)));
+    }
+
+    private Mono<String> verifyIndex(IndexDefinition definition) {
+        List<String> keys = new ArrayList<>(definition.getIndex().getIndexKeys().keySet());
+        boolean unique = definition.getIndex().getIndexOptions().getBoolean("unique", false);
+
+        return mongoTemplate.indexOps(definition.getCollection()).getIndexInfo()
+                .filter(info -> keys.equals(info.getIndexFields().stream().map(IndexField::getKey).toList()))
+                .next()
+                .map(info -> info.isUnique() == unique
+                        ? ""
+                        : definition.describe() + " conflicts with existing index " + info.getName())
+                .defaultIfEmpty(definition.describe() + " is missing")
+                .filter(problem -> !problem.isEmpty());
+    }
+
+    private void report(List<String> problems) {
+        if (problems == null || problems.isEmpty()) {
+            log.info("Mongo indexes verified");
+            return;
+        }
+        problems.forEach(problem -> log.warn("Mongo index problem: {}", problem));
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class IndexDefinition {
+        private final String collection;
+        private final Index index;
+
+        String describe() {
+            return collection + "." + index.getIndexOptions().getString("name");
+        }
+    }
+}
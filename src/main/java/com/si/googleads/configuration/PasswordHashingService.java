@@ -0,0 +1,71 @@
+package com.si.googleads.configuration;
+
+import com.si.googleads.exceptions.ServiceBusyException;
+import com.si.googleads.jfr.PasswordHashEvent;
+import com.si.googleads.tracing.RequestTrace;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+@Service
+@RequiredArgsConstructor
+public class PasswordHashingService {
+    private final PasswordEncoder passwordEncoder;
+    private final Scheduler passwordHashingScheduler;
+    private final MeterRegistry meterRegistry;
+
+    public Mono<String> encode(String rawPassword) {
+        return offload("encode", () -> passwordEncoder.encode(rawPassword), hash -> hash);
+    }
+
+    public Mono<Boolean> matches(String rawPassword, String encodedPassword) {
+        return offload("matches", () -> passwordEncoder.matches(rawPassword, encodedPassword), matched -> encodedPassword);
+    }
+
+    // BCrypt is CPU bound, so it must never run on a Netty event loop thread
+    private <T> Mono<T> offload(String operation, Callable<T> task, Function<T, String> hashOf) {
+        return RequestTrace.stage("password." + operation, Mono.defer(() -> {
+                    // Queue wait and hashing time are recorded separately so the scheduler can be sized from them
+                    Timer.Sample queued = Timer.start(meterRegistry);
+                    return Mono.fromCallable(() -> {
+                                queued.stop(meterRegistry.timer("password.hashing.queue.wait", "operation", operation));
+                                PasswordHashEvent event = new PasswordHashEvent();
+                                event.begin();
+                                T result = meterRegistry.timer("password.hashing", "operation", operation).recordCallable(task);
+                                if (event.shouldCommit()) {
+                                    event.operation = operation;
+                                    event.cost = bcryptCost(hashOf.apply(result));
+                                    event.commit();
+                                }
+                                return result;
+                            })
+                            .subscribeOn(passwordHashingScheduler);
+                })
+                .onErrorMap(RejectedExecutionException.class, e -> {
+                    meterRegistry.counter("password.hashing.rejected", "operation", operation).increment();
+                    return new ServiceBusyException("Too many authentication requests. Please try again shortly.");
+                }));
+    }
+
+    // Cost factor of a hash like $2a$10$..., or -1 when it is not BCrypt
+    private static int bcryptCost(String hash) {
+        if (hash == null || !hash.startsWith("$2")) {
+            return -1;
+        }
+        int start = hash.indexOf('$', 1) + 1;
+        int end = hash.indexOf('$', start);
+        try {
+            return Integer.parseInt(hash.substring(start, end));
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+}
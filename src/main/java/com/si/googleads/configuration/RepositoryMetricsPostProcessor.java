@@ -0,0 +1,96 @@
+package com.si.googleads.configuration;
+
+import com.si.googleads.jfr.MongoRepositoryCallEvent;
+import com.si.googleads.tracing.RequestTrace;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+// Times each repository query from subscription to completion, which is when a reactive query actually runs,
+// and records it as a stage of the traced request and as a JFR event
+@Component
+public class RepositoryMetricsPostProcessor implements BeanPostProcessor {
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public RepositoryMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+            factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                    (proxyFactory, repositoryInformation) -> proxyFactory.addAdvice(
+                            new QueryTimingInterceptor(repositoryInformation.getRepositoryInterface().getSimpleName(),
+                                    collectionOf(repositoryInformation.getDomainType())))));
+        }
+        return bean;
+    }
+
+    private static String collectionOf(Class<?> domainType) {
+        Document document = AnnotatedElementUtils.findMergedAnnotation(domainType, Document.class);
+        return document != null && !document.collection().isEmpty() ? document.collection() : domainType.getSimpleName();
+    }
+
+    private class QueryTimingInterceptor implements MethodInterceptor {
+        private final String repository;
+        private final String collection;
+
+        QueryTimingInterceptor(String repository, String collection) {
+            this.repository = repository;
+            this.collection = collection;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            Object result = invocation.proceed();
+            String method = invocation.getMethod().getName();
+            String stage = repository + "." + method;
+
+            if (result instanceof Mono<?> mono) {
+                return RequestTrace.stage(stage, Mono.defer(() -> {
+                    Timer.Sample sample = Timer.start(meterRegistry.getObject());
+                    MongoRepositoryCallEvent event = new MongoRepositoryCallEvent();
+                    event.begin();
+                    return mono.doFinally(signal -> stop(sample, event, method, signal));
+                }));
+            }
+            if (result instanceof Flux<?> flux) {
+                return RequestTrace.stage(stage, Flux.defer(() -> {
+                    Timer.Sample sample = Timer.start(meterRegistry.getObject());
+                    MongoRepositoryCallEvent event = new MongoRepositoryCallEvent();
+                    event.begin();
+                    return flux.doFinally(signal -> stop(sample, event, method, signal));
+                }));
+            }
+            return result;
+        }
+
+        private void stop(Timer.Sample sample, MongoRepositoryCallEvent event, String method, SignalType signal) {
+            String state = switch (signal) {
+                case ON_COMPLETE -> "success";
+                case ON_ERROR -> "error";
+                default -> "canceled";
+            };
+            sample.stop(meterRegistry.getObject().timer("mongo.repository.queries",
+                    "repository", repository, "method", method, "state", state));
+
+            if (event.shouldCommit()) {
+                event.collection = collection;
+                event.operation = method;
+                event.outcome = state;
+                event.commit();
+            }
+        }
+    }
+}
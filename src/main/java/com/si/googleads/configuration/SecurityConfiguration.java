@@ -2,11 +2,15 @@ package com.si.googleads.configuration;
 
 import com.si.googleads.advice.ApplicationExceptionHandler;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.method.configuration.EnableReactiveMethodSecurity;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
 import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatcher;
+
+import java.net.InetSocketAddress;
 
 @Configuration
 @RequiredArgsConstructor
@@ -16,6 +20,9 @@ public class SecurityConfiguration {
     private final SecurityContextRepository securityContextRepository;
     private ApplicationExceptionHandler applicationExceptionHandler;
 
+    @Value("${management.server.port:-1}")
+    private int managementPort;
+
     @Bean
     public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http) {
         http
@@ -24,10 +31,16 @@ public class SecurityConfiguration {
                 .authorizeExchange(exchanges -> exchanges
                                 .pathMatchers("/api/v1/auth/register",
                                         "/api/v1/auth/login",
-                                        "/api/v1/auth/google/connect" //Todo: Move to protected routes
+                                        "/api/v1/auth/refresh",
+                                        "/api/v1/auth/google/connect", //Todo: Move to protected routes
+                                        "/livez",
+                                        "/readyz"
 //                                "/api/v1/auth/google/callback" //Todo: Move to protected routes
                                 )
                                 .permitAll()
+                                // Actuator endpoints, Prometheus included, are only served on the internal management port
+                                .matchers(onManagementPort())
+                                .permitAll()
                                 .anyExchange()
                                 .authenticated()
                 )
@@ -47,4 +60,13 @@ public class SecurityConfiguration {
 
         return http.build();
     }
+
+    private ServerWebExchangeMatcher onManagementPort() {
+        return exchange -> {
+            InetSocketAddress localAddress = exchange.getRequest().getLocalAddress();
+            return managementPort > 0 && localAddress != null && localAddress.getPort() == managementPort
+                    ? ServerWebExchangeMatcher.MatchResult.match()
+                    : ServerWebExchangeMatcher.MatchResult.notMatch();
+        };
+    }
 }
@@ -1,5 +1,6 @@
 package com.si.googleads.configuration;
 
+import com.si.googleads.tracing.RequestTrace;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpHeaders;
@@ -28,6 +29,10 @@ public class SecurityContextRepository implements ServerSecurityContextRepositor
 
     @Override
     public Mono<SecurityContext> load(ServerWebExchange swe) {
+        return RequestTrace.stage("security_context.load", Mono.defer(() -> loadSecurityContext(swe)));
+    }
+
+    private Mono<SecurityContext> loadSecurityContext(ServerWebExchange swe) {
         ServerHttpRequest request = swe.getRequest();
         String authHeader = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
         String authToken = null;
@@ -0,0 +1,18 @@
+package com.si.googleads.configuration;
+
+import com.si.googleads.user.User;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class UserCacheEvictionListener extends AbstractMongoEventListener<User> {
+    private final AppUserDetailsService appUserDetailsService;
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<User> event) {
+        appUserDetailsService.evict(event.getSource().getEmail());
+    }
+}
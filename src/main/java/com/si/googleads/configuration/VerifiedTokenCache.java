@@ -0,0 +1,100 @@
+package com.si.googleads.configuration;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.si.googleads.jfr.JwtVerificationEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.function.Function;
+
+@Component
+public class VerifiedTokenCache implements MeterBinder {
+    private final boolean enabled;
+    private final Cache<String, JwtClaims> cache;
+
+    public VerifiedTokenCache(@Value("${jwt_cache_enabled:false}") boolean enabled,
+                              @Value("${jwt_cache_max_size:10000}") long maxSize) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, JwtClaims>() {
+                    @Override
+                    public long expireAfterCreate(String key, JwtClaims claims, long currentTime) {
+                        return timeUntilExpiry(claims).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, JwtClaims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, JwtClaims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    // Returns cached claims for a previously verified token, otherwise verifies it and caches the result
+    public JwtClaims get(String token, Function<String, JwtClaims> verifier) {
+        JwtVerificationEvent event = new JwtVerificationEvent();
+        event.begin();
+        event.cacheHit = enabled;
+        try {
+            JwtClaims claims = enabled
+                    ? cache.get(digest(token), key -> {
+                        event.cacheHit = false;
+                        return verifier.apply(token);
+                    })
+                    : verifier.apply(token);
+            event.valid = true;
+            return claims;
+        } finally {
+            event.commit();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "jwt_verified_tokens");
+    }
+
+    public long hitCount() {
+        return cache.stats().hitCount();
+    }
+
+    public long missCount() {
+        return cache.stats().missCount();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    private static Duration timeUntilExpiry(JwtClaims claims) {
+        Duration remaining = Duration.between(Instant.now(), claims.getExpiration());
+        return remaining.isNegative() ? Duration.ZERO : remaining;
+    }
+
+    private static String digest(String token) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(messageDigest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
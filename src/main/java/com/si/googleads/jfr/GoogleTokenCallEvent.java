@@ -0,0 +1,23 @@
+package com.si.googleads.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.si.googleads.GoogleTokenCall")
+@Label("Google Token Call")
+@Category({"Google Ads", "Google OAuth"})
+@Description("HTTP call to the Google OAuth token endpoint")
+@Enabled(false)
+@StackTrace(false)
+public class GoogleTokenCallEvent extends Event {
+    @Label("Grant Type")
+    public String grantType;
+
+    @Label("Status")
+    public int status;
+}
@@ -0,0 +1,23 @@
+package com.si.googleads.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.si.googleads.JwtVerification")
+@Label("JWT Verification")
+@Category({"Google Ads", "Authentication"})
+@Description("Bearer token verification in the authentication manager")
+@Enabled(false)
+@StackTrace(false)
+public class JwtVerificationEvent extends Event {
+    @Label("Cache Hit")
+    public boolean cacheHit;
+
+    @Label("Valid")
+    public boolean valid;
+}
@@ -0,0 +1,26 @@
+package com.si.googleads.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.si.googleads.MongoRepositoryCall")
+@Label("Mongo Repository Call")
+@Category({"Google Ads", "Mongo"})
+@Description("Repository query from subscription to termination")
+@Enabled(false)
+@StackTrace(false)
+public class MongoRepositoryCallEvent extends Event {
+    @Label("Collection")
+    public String collection;
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Outcome")
+    public String outcome;
+}
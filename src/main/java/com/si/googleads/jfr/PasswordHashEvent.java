@@ -0,0 +1,23 @@
+package com.si.googleads.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.si.googleads.PasswordHash")
+@Label("Password Hash")
+@Category({"Google Ads", "Authentication"})
+@Description("BCrypt encode or match on the password hashing scheduler")
+@Enabled(false)
+@StackTrace(false)
+public class PasswordHashEvent extends Event {
+    @Label("Operation")
+    public String operation;
+
+    @Label("Cost Factor")
+    public int cost;
+}
@@ -0,0 +1,29 @@
+package com.si.googleads.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.si.googleads.TokenRefreshRun")
+@Label("Token Refresh Run")
+@Category({"Google Ads", "Token Refresh"})
+@Description("One run of the background Google token refresher")
+@Enabled(false)
+@StackTrace(false)
+public class TokenRefreshRunEvent extends Event {
+    @Label("Due")
+    public int due;
+
+    @Label("Refreshed")
+    public int refreshed;
+
+    @Label("Failed")
+    public int failed;
+
+    @Label("Skipped")
+    public int skipped;
+}
@@ -0,0 +1,158 @@
+package com.si.googleads.ratelimit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.si.googleads.response.ErrorResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class LoginRateLimitFilter implements WebFilter {
+    private static final int MAX_BODY_BYTES = 16 * 1024;
+    private static final Map<String, String> ROUTES = Map.of(
+            "/api/v1/auth/login", "login",
+            "/api/v1/auth/register", "register"
+    );
+
+    private final RateLimiter rateLimiter;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final Map<String, RateLimit> ipLimits;
+    private final Map<String, RateLimit> emailLimits;
+
+    public LoginRateLimitFilter(RateLimiter rateLimiter, ObjectMapper objectMapper, Environment env) {
+        this.rateLimiter = rateLimiter;
+        this.objectMapper = objectMapper;
+        this.enabled = env.getProperty("rate_limit_enabled", Boolean.class, true);
+        this.ipLimits = Map.of(
+                "login", limitFor(env, "login", "ip", 20),
+                "register", limitFor(env, "register", "ip", 10)
+        );
+        this.emailLimits = Map.of(
+                "login", limitFor(env, "login", "email", 5),
+                "register", limitFor(env, "register", "email", 3)
+        );
+    }
+
+    private static RateLimit limitFor(Environment env, String route, String key, long defaultCapacity) {
+        String prefix = "rate_limit_" + route + "_" + key;
+        return new RateLimit(
+                env.getProperty(prefix + "_capacity", Long.class, defaultCapacity),
+                env.getProperty(prefix + "_period", Duration.class, Duration.ofMinutes(1))
+        );
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        String route = ROUTES.get(request.getPath().pathWithinApplication().value());
+
+        if (!enabled || route == null || request.getMethod() != HttpMethod.POST) {
+            return chain.filter(exchange);
+        }
+
+        Duration ipWait = rateLimiter.tryAcquire(route + ":ip:" + clientIp(request), ipLimits.get(route));
+        if (!ipWait.isZero()) {
+            return reject(exchange, ipWait);
+        }
+
+        // The email lives in the JSON body, so read it once here and replay it for the controller
+        return DataBufferUtils.join(request.getBody(), MAX_BODY_BYTES)
+                .map(this::toBytes)
+                .defaultIfEmpty(new byte[0])
+                .flatMap(body -> {
+                    String email = extractEmail(body);
+                    if (email != null) {
+                        Duration emailWait = rateLimiter.tryAcquire(route + ":email:" + email, emailLimits.get(route));
+                        if (!emailWait.isZero()) {
+                            return reject(exchange, emailWait);
+                        }
+                    }
+                    return chain.filter(exchange.mutate().request(replayBody(exchange, body)).build());
+                })
+                .onErrorResume(DataBufferLimitException.class, e -> {
+                    exchange.getResponse().setStatusCode(HttpStatus.PAYLOAD_TOO_LARGE);
+                    return exchange.getResponse().setComplete();
+                });
+    }
+
+    private byte[] toBytes(DataBuffer buffer) {
+        byte[] bytes = new byte[buffer.readableByteCount()];
+        buffer.read(bytes);
+        DataBufferUtils.release(buffer);
+        return bytes;
+    }
+
+    private String extractEmail(byte[] body) {
+        if (body.length == 0) {
+            return null;
+        }
+        try {
+            JsonNode email = objectMapper.readTree(body).get("email");
+            return email == null || !email.isTextual() ? null : email.asText().trim().toLowerCase(Locale.ROOT);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private ServerHttpRequest replayBody(ServerWebExchange exchange, byte[] body) {
+        return new ServerHttpRequestDecorator(exchange.getRequest()) {
+            @Override
+            public Flux<DataBuffer> getBody() {
+                return Flux.defer(() -> Flux.just(exchange.getResponse().bufferFactory().wrap(body)));
+            }
+        };
+    }
+
+    private String clientIp(ServerHttpRequest request) {
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        if (remoteAddress == null || remoteAddress.getAddress() == null) {
+            return "unknown";
+        }
+        return remoteAddress.getAddress().getHostAddress();
+    }
+
+    private Mono<Void> reject(ServerWebExchange exchange, Duration retryAfter) {
+        ServerHttpResponse response = exchange.getResponse();
+        long retryAfterSeconds = Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(new ErrorResponse<>("Too many requests. Please try again later."));
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+        } catch (JsonProcessingException e) {
+            log.error("Failed to serialize rate limit response", e);
+            return response.setComplete();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.si.googleads.ratelimit;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Duration;
+
+@Getter
+@AllArgsConstructor
+public class RateLimit {
+    private final long capacity;
+    private final Duration period;
+}
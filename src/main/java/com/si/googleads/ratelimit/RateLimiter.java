@@ -0,0 +1,44 @@
+package com.si.googleads.ratelimit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Slf4j
+@Component
+public class RateLimiter {
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final Duration idleTimeout;
+
+    public RateLimiter(@Value("${rate_limit_idle_timeout:PT10M}") Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    // Returns Duration.ZERO when the request is allowed, otherwise how long the caller should wait
+    public Duration tryAcquire(String key, RateLimit limit) {
+        long now = System.nanoTime();
+        long[] waitNanos = new long[1];
+        // Consumed under the map's per-key lock, so eviction cannot drop the bucket between lookup and consume
+        buckets.compute(key, (k, bucket) -> {
+            TokenBucket current = bucket == null ? new TokenBucket(limit.getCapacity(), limit.getPeriod(), now) : bucket;
+            waitNanos[0] = current.tryConsume(now);
+            return current;
+        });
+        return Duration.ofNanos(waitNanos[0]);
+    }
+
+    @Scheduled(fixedDelayString = "${rate_limit_sweep_interval:PT1M}")
+    public void evictIdleBuckets() {
+        long cutoff = System.nanoTime() - idleTimeout.toNanos();
+        int before = buckets.size();
+        for (String key : buckets.keySet()) {
+            buckets.computeIfPresent(key, (k, bucket) -> bucket.getLastAccessNanos() - cutoff < 0 ? null : bucket);
+        }
+        log.debug("Evicted {} idle rate limit buckets", before - buckets.size());
+    }
+}
@@ -0,0 +1,46 @@
+package com.si.googleads.refreshtoken;
+
+import com.si.googleads.user.Role;
+import com.si.googleads.user.User;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// All refresh tokens descending from one login; only the most recently issued one can be exchanged
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Document(collection = "refresh_tokens")
+public class RefreshTokenFamily {
+    @Id
+    private String id;
+
+    private String currentTokenId;
+
+    private String userId;
+
+    private String email;
+
+    private Role role;
+
+    private Instant expiresAt;
+
+    private Instant createdAt;
+
+    private Instant rotatedAt;
+
+    // Enough of the user to sign new tokens without loading the user document
+    public User toUser() {
+        return User.builder()
+                .id(userId)
+                .email(email)
+                .role(role)
+                .build();
+    }
+}
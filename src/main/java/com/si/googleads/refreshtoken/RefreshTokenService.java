@@ -0,0 +1,108 @@
+package com.si.googleads.refreshtoken;
+
+import com.si.googleads.configuration.JwtClaims;
+import com.si.googleads.configuration.JwtService;
+import com.si.googleads.exceptions.InvalidTokenException;
+import com.si.googleads.revocation.RevocationService;
+import com.si.googleads.user.User;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RefreshTokenService {
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final JwtService jwtService;
+    private final RevocationService revocationService;
+
+    @Value("${jwt_refresh_max_family_lifetime:P30D}")
+    private Duration maxFamilyLifetime;
+
+    // Starts a new token family at login or registration and returns its first refresh token
+    public Mono<String> issue(User user) {
+        Instant now = Instant.now();
+        RefreshTokenFamily family = RefreshTokenFamily.builder()
+                .id(UUID.randomUUID().toString())
+                .currentTokenId(UUID.randomUUID().toString())
+                .userId(user.getId())
+                .email(user.getEmail())
+                .role(user.getRole())
+                .expiresAt(now.plus(jwtService.getRefreshTokenLifetime()))
+                .createdAt(now)
+                .rotatedAt(now)
+                .build();
+
+        return mongoTemplate.insert(family).map(this::sign);
+    }
+
+    // Swaps the presented token for the next one in its family with a single conditional update. Rotation
+    // extends the family, but never past maxFamilyLifetime after login, so role changes and deleted
+    // accounts eventually reach every client
+    public Mono<RefreshTokenFamily> rotate(String refreshToken) {
+        return verify(refreshToken)
+                .flatMap(claims -> {
+                    Instant now = Instant.now();
+                    Query current = Query.query(Criteria.where("id").is(claims.getFamilyId())
+                            .and("currentTokenId").is(claims.getTokenId())
+                            .and("expiresAt").gt(now)
+                            .and("createdAt").gt(now.minus(maxFamilyLifetime)));
+                    Update next = new Update()
+                            .set("currentTokenId", UUID.randomUUID().toString())
+                            .set("expiresAt", now.plus(jwtService.getRefreshTokenLifetime()))
+                            .set("rotatedAt", now);
+
+                    return mongoTemplate.findAndModify(current, next, FindAndModifyOptions.options().returnNew(true), RefreshTokenFamily.class)
+                            .switchIfEmpty(Mono.defer(() -> rejectStaleToken(claims)));
+                });
+    }
+
+    // Ends the family of the presented token; fails without touching anything unless it belongs to the subject logging out
+    public Mono<Void> revoke(String refreshToken, String subject) {
+        return verify(refreshToken)
+                .filter(claims -> subject.equals(claims.getSubject()))
+                .switchIfEmpty(Mono.error(() -> new InvalidTokenException("Invalid refresh token")))
+                .flatMap(claims -> mongoTemplate.remove(Query.query(Criteria.where("id").is(claims.getFamilyId())), RefreshTokenFamily.class))
+                .then();
+    }
+
+    public Mono<Void> revokeAll(String email) {
+        return mongoTemplate.remove(Query.query(Criteria.where("email").is(email)), RefreshTokenFamily.class).then();
+    }
+
+    public String sign(RefreshTokenFamily family) {
+        return jwtService.generateRefreshToken(family.toUser(), family.getId(), family.getCurrentTokenId());
+    }
+
+    private Mono<JwtClaims> verify(String refreshToken) {
+        return Mono.fromCallable(() -> jwtService.verifyToken(refreshToken))
+                .onErrorMap(e -> new InvalidTokenException("Invalid refresh token"))
+                .filter(JwtClaims::isRefreshToken)
+                .switchIfEmpty(Mono.error(() -> new InvalidTokenException("Invalid refresh token")));
+    }
+
+    // A validly signed token that is no longer current has already been exchanged once, so whoever holds
+    // the family may be replaying a stolen token: the whole family is ended, every access token the user
+    // holds is revoked and the user has to log in again
+    private Mono<RefreshTokenFamily> rejectStaleToken(JwtClaims claims) {
+        return mongoTemplate.findAndRemove(Query.query(Criteria.where("id").is(claims.getFamilyId())), RefreshTokenFamily.class)
+                .filter(family -> !claims.getTokenId().equals(family.getCurrentTokenId()))
+                .flatMap(family -> {
+                    log.warn("Refresh token reuse detected for user {}, token family {} revoked", family.getUserId(), family.getId());
+                    return revocationService.revokeSubject(family.getEmail(), jwtService.getAccessTokenLifetime());
+                })
+                .then(Mono.error(new InvalidTokenException("Refresh token is no longer valid. Please login again")));
+    }
+}
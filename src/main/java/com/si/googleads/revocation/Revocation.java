@@ -0,0 +1,32 @@
+package com.si.googleads.revocation;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// Either one token (tokenId) or every token of a subject issued up to revokedBefore
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Document(collection = "revocations")
+public class Revocation {
+    @Id
+    private String id;
+
+    private String tokenId;
+
+    private String subject;
+
+    private Instant revokedBefore;
+
+    // Once the revoked tokens have expired on their own the entry is no longer needed
+    private Instant expiresAt;
+
+    private Instant createdAt;
+}
@@ -0,0 +1,148 @@
+package com.si.googleads.revocation;
+
+import com.mongodb.client.model.changestream.FullDocument;
+import com.si.googleads.configuration.JwtClaims;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+// In-memory mirror of the revocations collection, so checking a token never touches Mongo
+@Slf4j
+@Component
+public class RevocationList implements MeterBinder {
+    // Change stream events are replayed from slightly before each catch-up to cover clock skew with the server
+    private static final Duration REPLAY_MARGIN = Duration.ofSeconds(30);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final Map<String, Instant> revokedTokens = new ConcurrentHashMap<>();
+    private final Map<String, SubjectRevocation> revokedSubjects = new ConcurrentHashMap<>();
+    private final Duration minBackoff;
+    private final Duration maxBackoff;
+    private Disposable changeStream;
+
+    public RevocationList(ReactiveMongoTemplate mongoTemplate,
+                          @Value("${revocation_stream_retry_min_backoff:PT1S}") Duration minBackoff,
+                          @Value("${revocation_stream_retry_max_backoff:PT1M}") Duration maxBackoff) {
+        this.mongoTemplate = mongoTemplate;
+        this.minBackoff = minBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    public boolean isRevoked(JwtClaims claims) {
+        if (claims.getTokenId() != null && revokedTokens.containsKey(claims.getTokenId())) {
+            return true;
+        }
+        SubjectRevocation revocation = revokedSubjects.get(claims.getSubject());
+        // revokedBefore is stored on a whole second, the precision of iat, so a strict comparison is exact
+        return revocation != null
+                && (claims.getIssuedAt() == null || claims.getIssuedAt().isBefore(revocation.revokedBefore()));
+    }
+
+    // Cutoff of the subject's latest revocation, or null if it has none
+    public Instant revokedBefore(String subject) {
+        SubjectRevocation revocation = revokedSubjects.get(subject);
+        return revocation == null ? null : revocation.revokedBefore();
+    }
+
+    public void apply(Revocation revocation) {
+        if (revocation.getTokenId() != null) {
+            revokedTokens.put(revocation.getTokenId(), revocation.getExpiresAt());
+        }
+        if (revocation.getSubject() != null && revocation.getRevokedBefore() != null) {
+            revokedSubjects.merge(revocation.getSubject(),
+                    new SubjectRevocation(revocation.getRevokedBefore(), revocation.getExpiresAt()),
+                    SubjectRevocation::latest);
+        }
+    }
+
+    public int size() {
+        return revokedTokens.size() + revokedSubjects.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("jwt.revocations", this, RevocationList::size).register(registry);
+    }
+
+    // Every (re)connect starts with a catch-up query, then follows the change stream from just before it
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        changeStream = Flux.defer(() -> {
+                    Instant resumeAt = Instant.now().minus(REPLAY_MARGIN);
+                    return catchUp().thenMany(watch(resumeAt));
+                })
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, minBackoff)
+                        .maxBackoff(maxBackoff)
+                        .doBeforeRetry(signal -> log.warn("Revocation change stream interrupted, reconnecting: {}",
+                                signal.failure().getMessage())))
+                .repeatWhen(completed -> completed.delayElements(minBackoff))
+                .subscribe(this::apply);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (changeStream != null) {
+            changeStream.dispose();
+        }
+    }
+
+    // Safety net for missed events, and the only source of updates where change streams are unavailable
+    @Scheduled(initialDelayString = "${revocation_catch_up_interval:PT1M}", fixedDelayString = "${revocation_catch_up_interval:PT1M}")
+    public void scheduledCatchUp() {
+        catchUp().count().subscribe(
+                count -> log.debug("Caught up on {} revocations", count),
+                error -> log.warn("Could not catch up on revocations: {}", error.getMessage()));
+    }
+
+    @Scheduled(fixedDelayString = "${revocation_purge_interval:PT1M}")
+    public void purgeExpired() {
+        Instant now = Instant.now();
+        revokedTokens.values().removeIf(expiresAt -> expiresAt == null || expiresAt.isBefore(now));
+        revokedSubjects.values().removeIf(revocation -> revocation.expiresAt() == null || revocation.expiresAt().isBefore(now));
+    }
+
+    private Flux<Revocation> catchUp() {
+        return mongoTemplate.find(Query.query(Criteria.where("expiresAt").gt(Instant.now())), Revocation.class)
+                .doOnNext(this::apply);
+    }
+
+    private Flux<Revocation> watch(Instant resumeAt) {
+        ChangeStreamOptions options = ChangeStreamOptions.builder()
+                .fullDocumentLookup(FullDocument.UPDATE_LOOKUP)
+                .resumeAt(resumeAt)
+                .build();
+        return mongoTemplate.changeStream("revocations", options, Revocation.class)
+                .map(ChangeStreamEvent::getBody)
+                .filter(Objects::nonNull);
+    }
+
+    private record SubjectRevocation(Instant revokedBefore, Instant expiresAt) {
+        SubjectRevocation latest(SubjectRevocation other) {
+            return new SubjectRevocation(
+                    revokedBefore.isAfter(other.revokedBefore) ? revokedBefore : other.revokedBefore,
+                    expiresAt == null || (other.expiresAt != null && other.expiresAt.isAfter(expiresAt)) ? other.expiresAt : expiresAt);
+        }
+    }
+}
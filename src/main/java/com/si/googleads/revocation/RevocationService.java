@@ -0,0 +1,49 @@
+package com.si.googleads.revocation;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+@Service
+@RequiredArgsConstructor
+public class RevocationService {
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final RevocationList revocationList;
+
+    public Mono<Revocation> revokeToken(String tokenId, Instant tokenExpiresAt) {
+        Update update = new Update()
+                .setOnInsert("tokenId", tokenId)
+                .setOnInsert("expiresAt", tokenExpiresAt)
+                .setOnInsert("createdAt", Instant.now());
+        return upsert("token:" + tokenId, update);
+    }
+
+    // Every token of the subject issued up to now stops working; tokens issued afterwards are unaffected.
+    // iat has second precision, so the cutoff is rounded up to the next whole second and JwtService dates
+    // tokens issued before then at the cutoff itself
+    public Mono<Revocation> revokeSubject(String subject, Duration tokenLifetime) {
+        Instant now = Instant.now();
+        Update update = new Update()
+                .setOnInsert("subject", subject)
+                .setOnInsert("createdAt", now)
+                .max("revokedBefore", now.truncatedTo(ChronoUnit.SECONDS).plusSeconds(1))
+                .max("expiresAt", now.plus(tokenLifetime));
+        return upsert("subject:" + subject, update);
+    }
+
+    // Applied locally right away; other nodes pick it up from the change stream
+    private Mono<Revocation> upsert(String id, Update update) {
+        return mongoTemplate.findAndModify(Query.query(Criteria.where("id").is(id)), update,
+                        FindAndModifyOptions.options().upsert(true).returnNew(true), Revocation.class)
+                .doOnNext(revocationList::apply);
+    }
+}
@@ -0,0 +1,93 @@
+package com.si.googleads.token;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+@Component
+public class GoogleTokenCache implements MeterBinder {
+    private final AsyncCache<String, Token> cache;
+    // Users whose token a reader refreshed in the background recently; at most one attempt per cooldown
+    private final Cache<String, Boolean> backgroundRefreshes;
+    private final Duration safetyMargin;
+
+    public GoogleTokenCache(@Value("${google_token_cache_max_size:10000}") long maxSize,
+                            @Value("${google_token_cache_safety_margin:PT1M}") Duration safetyMargin,
+                            @Value("${google_token_background_refresh_cooldown:PT30S}") Duration backgroundRefreshCooldown) {
+        this.safetyMargin = safetyMargin;
+        this.backgroundRefreshes = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(backgroundRefreshCooldown)
+                .build();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, Token>() {
+                    @Override
+                    public long expireAfterCreate(String email, Token token, long currentTime) {
+                        return usableFor(token).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String email, Token token, long currentTime, long currentDuration) {
+                        return usableFor(token).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(String email, Token token, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .buildAsync();
+    }
+
+    public Mono<Token> get(String email, Function<String, Mono<Token>> loader) {
+        return Mono.fromFuture(() -> cache.get(email, (key, executor) -> loader.apply(key).toFuture()), true);
+    }
+
+    // Replaces whatever was cached for the user with the token that was just stored
+    public void put(Token token) {
+        cache.put(token.getEmail(), CompletableFuture.completedFuture(token));
+    }
+
+    // True for the first caller per user and cooldown, so reads inside the soft expiry window
+    // neither claim the lease in Mongo nor call Google on every request
+    public boolean tryStartBackgroundRefresh(String email) {
+        return backgroundRefreshes.asMap().putIfAbsent(email, Boolean.TRUE) == null;
+    }
+
+    public void invalidate(String email) {
+        cache.synchronous().invalidate(email);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "google_tokens");
+    }
+
+    public long size() {
+        return cache.synchronous().estimatedSize();
+    }
+
+    // Entries expire a safety margin before Google does, so callers never get a token that dies in flight
+    private Duration usableFor(Token token) {
+        if (token.getUpdatedAt() == null || token.getExpiresIn() == null) {
+            return Duration.ZERO;
+        }
+        Instant usableUntil = token.getUpdatedAt().plus(token.getExpiresIn()).minus(safetyMargin);
+        Duration remaining = Duration.between(Instant.now(), usableUntil);
+        return remaining.isNegative() ? Duration.ZERO : remaining;
+    }
+}
@@ -0,0 +1,25 @@
+package com.si.googleads.token;
+
+import com.si.googleads.ratelimit.TokenBucket;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+// Spreads calls to the Google token endpoint according to token_refresh_rate_per_second, retries included
+@Component
+public class GoogleTokenRateLimiter {
+    private final TokenBucket bucket;
+
+    public GoogleTokenRateLimiter(@Value("${token_refresh_rate_per_second:10}") long ratePerSecond) {
+        this.bucket = new TokenBucket(ratePerSecond, Duration.ofSeconds(1), System.nanoTime());
+    }
+
+    public Mono<Void> acquire() {
+        return Mono.defer(() -> {
+            long waitNanos = bucket.reserve(System.nanoTime());
+            return waitNanos == 0 ? Mono.empty() : Mono.delay(Duration.ofNanos(waitNanos)).then();
+        });
+    }
+}
@@ -13,7 +13,7 @@ import java.time.Duration;
 import java.time.Instant;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @AllArgsConstructor
 @NoArgsConstructor
 @Document(collection = "tokens")
@@ -27,12 +27,18 @@ public class Token {
 
     private Duration expiresIn;
 
+    private Instant expiresAt;
+
     private String tokenType;
 
     private String refreshToken;
 
     private String scope;
 
+    private String leaseOwner;
+
+    private Instant leaseUntil;
+
     @CreatedDate
     private Instant createdAt;
 
@@ -0,0 +1,53 @@
+package com.si.googleads.token;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+@Service
+@RequiredArgsConstructor
+public class TokenLeaseService {
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    @Getter
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Value("${token_refresh_lease_duration:PT2M}")
+    private Duration leaseDuration;
+
+    // Atomically claims a token that is still due and not leased by a live node; empty if someone else has it
+    public Mono<Token> claim(String tokenId, Instant dueCutoff) {
+        Instant now = Instant.now();
+        Query query = Query.query(new Criteria().andOperator(
+                Criteria.where("id").is(tokenId),
+                new Criteria().orOperator(
+                        Criteria.where("expiresAt").lte(dueCutoff),
+                        Criteria.where("expiresAt").is(null)),
+                new Criteria().orOperator(
+                        Criteria.where("leaseUntil").is(null),
+                        Criteria.where("leaseUntil").lt(now))));
+        Update update = new Update()
+                .set("leaseOwner", nodeId)
+                .set("leaseUntil", now.plus(leaseDuration));
+
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Token.class);
+    }
+
+    public Mono<Void> release(String tokenId) {
+        Query query = Query.query(Criteria.where("id").is(tokenId).and("leaseOwner").is(nodeId));
+        Update update = new Update().unset("leaseOwner").unset("leaseUntil");
+
+        return mongoTemplate.updateFirst(query, update, Token.class).then();
+    }
+}
@@ -0,0 +1,7 @@
+package com.si.googleads.token;
+
+public enum TokenRefreshOutcome {
+    REFRESHED,
+    FAILED,
+    SKIPPED
+}
@@ -0,0 +1,68 @@
+package com.si.googleads.token;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+@Component
+public class TokenRefreshScheduler implements MeterBinder {
+    private final Map<String, Instant> deadlines = new HashMap<>();
+    private final PriorityQueue<Deadline> queue = new PriorityQueue<>(Comparator.comparing(Deadline::dueAt));
+    private final Duration refreshWindow;
+
+    public TokenRefreshScheduler(@Value("${token_refresh_window:PT5M}") Duration refreshWindow) {
+        this.refreshWindow = refreshWindow;
+    }
+
+    public void schedule(Token token) {
+        Instant dueAt = token.getExpiresAt() == null ? Instant.now() : token.getExpiresAt().minus(refreshWindow);
+        schedule(token.getEmail(), dueAt);
+    }
+
+    // Rescheduling leaves the old queue entry behind; it is skipped when polled because the deadline moved
+    public synchronized void schedule(String email, Instant dueAt) {
+        deadlines.put(email, dueAt);
+        queue.add(new Deadline(email, dueAt));
+
+        if (queue.size() > 2 * deadlines.size() + 1024) {
+            queue.removeIf(deadline -> !deadline.dueAt().equals(deadlines.get(deadline.email())));
+        }
+    }
+
+    public synchronized List<String> pollDue(Instant now, int max) {
+        List<String> due = new ArrayList<>();
+        while (due.size() < max && !queue.isEmpty() && !queue.peek().dueAt().isAfter(now)) {
+            Deadline deadline = queue.poll();
+            if (deadline.dueAt().equals(deadlines.get(deadline.email()))) {
+                deadlines.remove(deadline.email());
+                due.add(deadline.email());
+            }
+        }
+        return due;
+    }
+
+    public synchronized int size() {
+        return deadlines.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("token.refresh.queue.depth", this, TokenRefreshScheduler::size)
+                .description("Tokens waiting for their refresh deadline")
+                .register(registry);
+    }
+
+    private record Deadline(String email, Instant dueAt) {
+    }
+}
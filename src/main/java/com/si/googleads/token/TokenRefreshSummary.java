@@ -0,0 +1,20 @@
+package com.si.googleads.token;
+
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+public class TokenRefreshSummary {
+    private int refreshed;
+    private int failed;
+    private int skipped;
+
+    public void record(TokenRefreshOutcome outcome) {
+        switch (outcome) {
+            case REFRESHED -> refreshed++;
+            case FAILED -> failed++;
+            case SKIPPED -> skipped++;
+        }
+    }
+}
@@ -2,9 +2,14 @@ package com.si.googleads.token;
 
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
+
 @Repository
 public interface TokenRepository extends ReactiveMongoRepository<Token,String> {
     Mono<Token> findByEmail(String email);
+
+    Flux<Token> findByEmailIn(Collection<String> emails);
 }
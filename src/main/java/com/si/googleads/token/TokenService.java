@@ -1,42 +1,207 @@
 package com.si.googleads.token;
 
 import com.si.googleads.auth.AuthService;
+import com.si.googleads.jfr.TokenRefreshRunEvent;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 
 @Slf4j
 @Service
 @EnableScheduling
 @RequiredArgsConstructor
 public class TokenService {
+    private final ReactiveMongoTemplate mongoTemplate;
     private final TokenRepository tokenRepository;
+    private final TokenRefreshScheduler tokenRefreshScheduler;
+    private final TokenLeaseService tokenLeaseService;
     private final AuthService authService;
+    private final MeterRegistry meterRegistry;
 
-//    @Scheduled(fixedDelayString = "PT5S")
-    @Scheduled(fixedDelayString = "PT10S")
+    @Value("${token_refresh_window:PT5M}")
+    private Duration refreshWindow;
+    @Value("${token_refresh_page_size:100}")
+    private int pageSize;
+    @Value("${token_refresh_concurrency:8}")
+    private int concurrency;
+    @Value("${token_refresh_retry_delay:PT1M}")
+    private Duration retryDelay;
+
+    private final AtomicBoolean refreshInFlight = new AtomicBoolean();
+
+    // Fires only the tokens whose refresh deadline has passed; no database work when nothing is due
+    @Scheduled(fixedDelayString = "${token_refresh_tick:PT1S}")
     public void keepOauthTokensAlive() {
-        log.info("Running job...");
+        if (!refreshInFlight.compareAndSet(false, true)) {
+            log.debug("Previous token refresh run is still in flight");
+            return;
+        }
+
+        List<String> dueEmails = tokenRefreshScheduler.pollDue(Instant.now(), pageSize);
+        if (dueEmails.isEmpty()) {
+            refreshInFlight.set(false);
+            return;
+        }
 
-        tokenRepository.findAll()
-                .filter(this::shouldRefreshToken)
-                .flatMap(authService::refreshToken)
-                .subscribe();
+        long startedAt = System.nanoTime();
+        TokenRefreshRunEvent event = new TokenRefreshRunEvent();
+        event.begin();
+        // pollDue already dropped these deadlines, so tokens the run does not finish with must be put back
+        Set<String> reached = ConcurrentHashMap.newKeySet();
+        tokenRepository.findByEmailIn(dueEmails)
+                .flatMap(token -> refreshOrRetryLater(token).doOnNext(outcome -> reached.add(token.getEmail())), concurrency)
+                .doOnNext(outcome -> meterRegistry.counter("token.refresh.outcomes", "outcome", outcome.name()).increment())
+                .collect(TokenRefreshSummary::new, TokenRefreshSummary::record)
+                .doFinally(signal -> refreshInFlight.set(false))
+                .subscribe(
+                        summary -> {
+                            Duration elapsed = Duration.ofNanos(System.nanoTime() - startedAt);
+                            meterRegistry.timer("token.refresh.run", "result", "success").record(elapsed);
+                            if (event.shouldCommit()) {
+                                event.due = dueEmails.size();
+                                event.refreshed = summary.getRefreshed();
+                                event.failed = summary.getFailed();
+                                event.skipped = summary.getSkipped();
+                                event.commit();
+                            }
+                            log.info("Token refresh run finished in {} ms: {}", elapsed.toMillis(), summary);
+                        },
+                        error -> {
+                            meterRegistry.timer("token.refresh.run", "result", "error").record(Duration.ofNanos(System.nanoTime() - startedAt));
+                            log.error("Token refresh run failed", error);
+                            Instant retryAt = Instant.now().plus(retryDelay);
+                            dueEmails.stream()
+                                    .filter(email -> !reached.contains(email))
+                                    .forEach(email -> tokenRefreshScheduler.schedule(email, retryAt));
+                        }
+                );
     }
 
-    private boolean shouldRefreshToken(Token token) {
-        Duration expiresInDuration = token.getExpiresIn();
-        Instant expirationTime = token.getUpdatedAt().plus(expiresInDuration);
+    // A failure for one token, such as a lease claim or lookup error, only reschedules that token
+    private Mono<TokenRefreshOutcome> refreshOrRetryLater(Token token) {
+        return refresh(token)
+                .onErrorResume(error -> {
+                    log.warn("Token refresh failed for token {}: {}", token.getId(), error.getMessage());
+                    tokenRefreshScheduler.schedule(token.getEmail(), Instant.now().plus(retryDelay));
+                    return Mono.just(TokenRefreshOutcome.FAILED);
+                });
+    }
+
+    private Mono<TokenRefreshOutcome> refresh(Token token) {
+        if (token.getRefreshToken() == null) {
+            return Mono.just(TokenRefreshOutcome.SKIPPED);
+        }
+
+        return tokenLeaseService.claim(token.getId(), Instant.now().plus(refreshWindow))
+                .flatMap(claimed -> authService.refreshToken(claimed)
+                        .map(refreshed -> TokenRefreshOutcome.REFRESHED)
+                        .onErrorResume(error -> tokenLeaseService.release(claimed.getId())
+                                .onErrorResume(releaseError -> Mono.empty())
+                                .then(Mono.fromCallable(() -> {
+                                    tokenRefreshScheduler.schedule(claimed.getEmail(), Instant.now().plus(retryDelay));
+                                    return TokenRefreshOutcome.FAILED;
+                                }))))
+                .switchIfEmpty(Mono.defer(() -> rescheduleFromStore(token)));
+    }
+
+    // Another node refreshed or holds the token, so follow whatever is stored now
+    private Mono<TokenRefreshOutcome> rescheduleFromStore(Token token) {
+        return tokenRepository.findById(token.getId())
+                .doOnNext(current -> {
+                    Instant now = Instant.now();
+                    if (current.getLeaseUntil() != null && current.getLeaseUntil().isAfter(now)) {
+                        tokenRefreshScheduler.schedule(current.getEmail(), current.getLeaseUntil());
+                    } else {
+                        tokenRefreshScheduler.schedule(current);
+                    }
+                })
+                .thenReturn(TokenRefreshOutcome.SKIPPED);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildRefreshSchedule() {
+        Query query = new Query();
+        query.fields().include("email", "expiresAt");
+
+        mongoTemplate.find(query, Token.class)
+                .doOnNext(tokenRefreshScheduler::schedule)
+                .count()
+                .subscribe(
+                        count -> log.info("Scheduled refresh for {} tokens", count),
+                        error -> log.warn("Could not rebuild token refresh schedule: {}", error.getMessage())
+                );
+    }
+
+    // Picks up tokens written by other nodes or whose refresh failed, using the indexed expiry range
+    @Scheduled(initialDelayString = "${token_refresh_reconcile_interval:PT5M}", fixedDelayString = "${token_refresh_reconcile_interval:PT5M}")
+    public void reconcileRefreshSchedule() {
+        Flux.concat(findTokensWithoutExpiry(), findTokensDueBefore(Instant.now().plus(refreshWindow)))
+                .subscribe(
+                        tokenRefreshScheduler::schedule,
+                        error -> log.warn("Could not reconcile token refresh schedule: {}", error.getMessage())
+                );
+    }
+
+    // Keyset pagination on (expiresAt, id) so only due tokens are read, one page at a time
+    private Flux<Token> findTokensDueBefore(Instant cutoff) {
+        return fetchDuePage(cutoff, null)
+                .expand(page -> page.size() < pageSize ? Mono.empty() : fetchDuePage(cutoff, page.get(page.size() - 1)))
+                .concatMapIterable(Function.identity());
+    }
+
+    private Mono<List<Token>> fetchDuePage(Instant cutoff, Token last) {
+        Criteria criteria = Criteria.where("expiresAt").lte(cutoff);
+        if (last != null) {
+            criteria = new Criteria().andOperator(criteria, new Criteria().orOperator(
+                    Criteria.where("expiresAt").gt(last.getExpiresAt()),
+                    new Criteria().andOperator(
+                            Criteria.where("expiresAt").is(last.getExpiresAt()),
+                            Criteria.where("id").gt(last.getId()))));
+        }
+
+        Query query = Query.query(criteria)
+                .with(Sort.by(Sort.Direction.ASC, "expiresAt", "id"))
+                .limit(pageSize);
+        return mongoTemplate.find(query, Token.class).collectList();
+    }
+
+    // Tokens stored before expiresAt existed are refreshed once, which stamps their expiry. Paged by id so
+    // tokens that keep failing cannot hold the first page and starve the rest
+    private Flux<Token> findTokensWithoutExpiry() {
+        return fetchPageWithoutExpiry(null)
+                .expand(page -> page.size() < pageSize ? Mono.empty() : fetchPageWithoutExpiry(page.get(page.size() - 1).getId()))
+                .concatMapIterable(Function.identity());
+    }
 
-        Duration timeUntilExpiration = Duration.between(Instant.now(), expirationTime);
+    private Mono<List<Token>> fetchPageWithoutExpiry(String lastId) {
+        Criteria criteria = Criteria.where("expiresAt").is(null);
+        if (lastId != null) {
+            criteria = criteria.and("id").gt(lastId);
+        }
 
-//    Todo: Update time
-        int MIN_TIME_TO_UPDATE = 5;
-        return timeUntilExpiration.toSeconds() >= MIN_TIME_TO_UPDATE;
+        Query query = Query.query(criteria)
+                .with(Sort.by(Sort.Direction.ASC, "id"))
+                .limit(pageSize);
+        return mongoTemplate.find(query, Token.class).collectList();
     }
 }
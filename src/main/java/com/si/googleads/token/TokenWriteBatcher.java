@@ -0,0 +1,174 @@
+package com.si.googleads.token;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TokenWriteBatcher {
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final TokenLeaseService tokenLeaseService;
+
+    @Value("${token_write_batch_size:100}")
+    private int batchSize;
+    @Value("${token_write_batch_max_wait:PT0.2S}")
+    private Duration maxWait;
+    @Value("${token_write_batch_shutdown_timeout:PT5S}")
+    private Duration shutdownTimeout;
+
+    private FluxSink<PendingWrite> pendingWrites;
+    private Disposable flusher;
+    private boolean stopped;
+    private final CountDownLatch drained = new CountDownLatch(1);
+
+    @PostConstruct
+    void start() {
+        flusher = Flux.<PendingWrite>create(sink -> pendingWrites = sink)
+                .bufferTimeout(batchSize, maxWait, true)
+                .concatMap(this::flush)
+                .doFinally(signal -> drained.countDown())
+                .subscribe();
+    }
+
+    @PreDestroy
+    void stop() {
+        // Let the last batch reach Mongo before tearing the pipeline down
+        synchronized (this) {
+            stopped = true;
+            pendingWrites.complete();
+        }
+        try {
+            if (!drained.await(shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warn("Token batch writes did not finish within {}", shutdownTimeout);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flusher.dispose();
+    }
+
+    // Completes with the token once its batch is written, or with the error for this token alone
+    public Mono<Token> submit(Token token) {
+        return Mono.create(result -> enqueue(new PendingWrite(token, result)));
+    }
+
+    // Once stopped the pipeline no longer reads writes, so they are rejected instead of waiting forever
+    private synchronized void enqueue(PendingWrite write) {
+        if (stopped) {
+            write.result().error(new IllegalStateException("Token write batcher is stopped, token " + write.token().getId() + " was not stored"));
+            return;
+        }
+        pendingWrites.next(write);
+    }
+
+    private Mono<Void> flush(List<PendingWrite> batch) {
+        ReactiveBulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Token.class);
+        batch.forEach(write -> bulkOps.updateOne(
+                // Only the lease holder may store the refresh and clear the lease, as with TokenLeaseService.release
+                Query.query(Criteria.where("id").is(write.token().getId()).and("leaseOwner").is(tokenLeaseService.getNodeId())),
+                refreshedFields(write.token())));
+
+        return bulkOps.execute()
+                .flatMap(result -> result.getMatchedCount() == batch.size()
+                        ? Mono.fromRunnable(() -> batch.forEach(write -> write.result().success(write.token())))
+                        : reportUnmatchedWrites(batch))
+                .onErrorResume(error -> {
+                    failWrites(batch, error);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    // Some tokens were leased to another node by the time their batch ran; a token whose stored access token
+    // is not the one just written was not updated, and only those writes fail
+    private Mono<Void> reportUnmatchedWrites(List<PendingWrite> batch) {
+        Query written = Query.query(Criteria.where("id").in(batch.stream().map(write -> write.token().getId()).toList()));
+        written.fields().include("id", "accessToken");
+
+        return mongoTemplate.find(written, Token.class)
+                .collectMap(Token::getId, Token::getAccessToken)
+                .doOnNext(stored -> {
+                    int lost = 0;
+                    for (PendingWrite write : batch) {
+                        if (Objects.equals(stored.get(write.token().getId()), write.token().getAccessToken())) {
+                            write.result().success(write.token());
+                        } else {
+                            lost++;
+                            write.result().error(new RuntimeException("Refreshed token " + write.token().getId() + " was not stored because this node no longer holds its lease"));
+                        }
+                    }
+                    log.warn("{} of {} refreshed tokens were not stored because this node no longer held their lease", lost, batch.size());
+                })
+                .then();
+    }
+
+    private Update refreshedFields(Token token) {
+        return new Update()
+                .set("accessToken", token.getAccessToken())
+                .set("expiresIn", token.getExpiresIn())
+                .set("expiresAt", token.getExpiresAt())
+                .set("updatedAt", token.getUpdatedAt())
+                .unset("leaseOwner")
+                .unset("leaseUntil");
+    }
+
+    private void failWrites(List<PendingWrite> batch, Throwable error) {
+        List<BulkWriteError> writeErrors = null;
+        if (error instanceof BulkOperationException bulkError) {
+            writeErrors = bulkError.getErrors();
+        } else if (error instanceof MongoBulkWriteException bulkError) {
+            writeErrors = bulkError.getWriteErrors();
+        }
+
+        if (writeErrors == null) {
+            log.error("Token batch write of {} updates failed", batch.size(), error);
+            batch.forEach(write -> write.result().error(error));
+            return;
+        }
+
+        Map<Integer, BulkWriteError> errorsByIndex = writeErrors.stream()
+                .collect(Collectors.toMap(BulkWriteError::getIndex, Function.identity(), (first, second) -> first));
+        log.warn("Token batch write had {} failed updates out of {}", errorsByIndex.size(), batch.size());
+
+        for (int i = 0; i < batch.size(); i++) {
+            PendingWrite write = batch.get(i);
+            BulkWriteError writeError = errorsByIndex.get(i);
+            if (writeError == null) {
+                write.result().success(write.token());
+            } else {
+                write.result().error(new RuntimeException("Failed to store refreshed token " + write.token().getId() + ": " + writeError.getMessage()));
+            }
+        }
+    }
+
+    private record PendingWrite(Token token, MonoSink<Token> result) {
+    }
+}
@@ -0,0 +1,75 @@
+package com.si.googleads.tracing;
+
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+
+// Stage timings for one sampled request, carried in the Reactor Context of the exchange
+public class RequestTrace {
+    private static final Class<RequestTrace> CONTEXT_KEY = RequestTrace.class;
+
+    private final long startedAt = System.nanoTime();
+    private final Queue<Stage> stages = new ConcurrentLinkedQueue<>();
+
+    public Context writeTo(Context context) {
+        return context.put(CONTEXT_KEY, this);
+    }
+
+    // Times the publisher from subscription to termination when the request is being traced, otherwise returns it as is.
+    // Recorded before the signal travels downstream, so the stage is in place by the time the response completes
+    public static <T> Mono<T> stage(String name, Mono<T> mono) {
+        return Mono.deferContextual(context -> {
+            RequestTrace trace = context.getOrDefault(CONTEXT_KEY, null);
+            if (trace == null) {
+                return mono;
+            }
+            long stageStartedAt = System.nanoTime();
+            return mono.doOnTerminate(() -> trace.record(name, stageStartedAt))
+                    .doOnCancel(() -> trace.record(name, stageStartedAt));
+        });
+    }
+
+    public static <T> Flux<T> stage(String name, Flux<T> flux) {
+        return Flux.deferContextual(context -> {
+            RequestTrace trace = context.getOrDefault(CONTEXT_KEY, null);
+            if (trace == null) {
+                return flux;
+            }
+            long stageStartedAt = System.nanoTime();
+            return flux.doOnTerminate(() -> trace.record(name, stageStartedAt))
+                    .doOnCancel(() -> trace.record(name, stageStartedAt));
+        });
+    }
+
+    // Covers a WebClient exchange up to the response headers
+    public static ExchangeFilterFunction exchangeFilter(String name) {
+        return (request, next) -> stage(name, next.exchange(request));
+    }
+
+    public long elapsedNanos() {
+        return System.nanoTime() - startedAt;
+    }
+
+    // name=duration@offset for each stage, in start order, e.g. "UserRepository.findByEmail=12.3ms@+0.4ms"
+    public String describeStages() {
+        return stages.stream()
+                .sorted(Comparator.comparingLong(Stage::startedAt))
+                .map(stage -> String.format(Locale.ROOT, "%s=%.1fms@+%.1fms",
+                        stage.name(), stage.durationNanos() / 1e6, (stage.startedAt() - startedAt) / 1e6))
+                .collect(Collectors.joining(" "));
+    }
+
+    private void record(String name, long stageStartedAt) {
+        stages.add(new Stage(name, stageStartedAt, System.nanoTime() - stageStartedAt));
+    }
+
+    private record Stage(String name, long startedAt, long durationNanos) {
+    }
+}
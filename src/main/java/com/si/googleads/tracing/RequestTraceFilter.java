@@ -0,0 +1,57 @@
+package com.si.googleads.tracing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Runs right after rate limiting, so the trace covers the security chain and the handler
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class RequestTraceFilter implements WebFilter {
+    private final double sampleRate;
+    private final long slowThresholdNanos;
+
+    public RequestTraceFilter(@Value("${request_trace_sample_rate:0.1}") double sampleRate,
+                              @Value("${request_trace_slow_threshold:PT1S}") Duration slowThreshold) {
+        this.sampleRate = sampleRate;
+        this.slowThresholdNanos = slowThreshold.toNanos();
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (sampleRate <= 0 || ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return chain.filter(exchange);
+        }
+
+        RequestTrace trace = new RequestTrace();
+        return chain.filter(exchange)
+                .doFinally(signal -> logIfSlow(exchange, trace))
+                .contextWrite(trace::writeTo);
+    }
+
+    private void logIfSlow(ServerWebExchange exchange, RequestTrace trace) {
+        long elapsedNanos = trace.elapsedNanos();
+        if (elapsedNanos < slowThresholdNanos) {
+            return;
+        }
+
+        HttpStatusCode status = exchange.getResponse().getStatusCode();
+        log.warn("slow_request method={} path={} status={} total_ms={} stages=[{}]",
+                exchange.getRequest().getMethod(),
+                exchange.getRequest().getPath().value(),
+                status == null ? "none" : status.value(),
+                elapsedNanos / 1_000_000,
+                trace.describeStages());
+    }
+}
@@ -0,0 +1,45 @@
+package com.si.googleads.util;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// Concurrent callers for the same key share one in-progress Mono; the entry is dropped once it completes
+public class SingleFlight<K, V> {
+    private final Map<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+
+    public Mono<V> execute(K key, Supplier<Mono<V>> work) {
+        return Mono.defer(() -> {
+            Sinks.One<V> sink = Sinks.one();
+            Mono<V> shared = sink.asMono();
+            Mono<V> existing = inFlight.putIfAbsent(key, shared);
+            if (existing != null) {
+                return existing;
+            }
+
+            // Subscribed independently of the first caller so a cancelled caller does not cancel the others;
+            // deferred so a supplier that throws still clears the entry and fails the shared Mono
+            Mono.defer(work).subscribe(
+                    value -> {
+                        inFlight.remove(key, shared);
+                        sink.tryEmitValue(value);
+                    },
+                    error -> {
+                        inFlight.remove(key, shared);
+                        sink.tryEmitError(error);
+                    },
+                    () -> {
+                        inFlight.remove(key, shared);
+                        sink.tryEmitEmpty();
+                    });
+            return shared;
+        });
+    }
+
+    public int size() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,89 @@
+package com.si.googleads.auth;
+
+import com.si.googleads.configuration.GoogleOAuthClientConfiguration;
+import com.si.googleads.configuration.GoogleOAuthPoolMetrics;
+import com.si.googleads.support.GoogleOAuthStubServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GoogleTokenClientTests {
+    private GoogleOAuthStubServer google;
+    private ConnectionProvider connectionProvider;
+
+    @AfterEach
+    void tearDown() {
+        if (connectionProvider != null) {
+            connectionProvider.disposeLater().block();
+        }
+        if (google != null) {
+            google.close();
+        }
+    }
+
+    @Test
+    void refreshGrantReturnsNewAccessToken() {
+        google = GoogleOAuthStubServer.start();
+        GoogleTokenClient client = clientFor(google, new MockEnvironment());
+
+        StepVerifier.create(client.refresh("refresh-1"))
+                .assertNext(body -> assertThat(body).contains("\"access_token\":\"new-refresh-1-1\""))
+                .verifyComplete();
+        assertThat(google.refreshesByToken()).containsEntry("refresh-1", 1);
+    }
+
+    @Test
+    void authorizationCodeGrantReturnsRefreshToken() {
+        google = GoogleOAuthStubServer.start();
+        GoogleTokenClient client = clientFor(google, new MockEnvironment());
+
+        StepVerifier.create(client.exchangeAuthorizationCode("code-1"))
+                .assertNext(body -> assertThat(body).contains("\"refresh_token\":\"refresh-code-1\""))
+                .verifyComplete();
+        assertThat(google.authorizationCodeGrants()).isEqualTo(1);
+    }
+
+    @Test
+    void rateLimitedResponseCarriesRetryAfter() {
+        google = GoogleOAuthStubServer.builder().rateLimitRate(1.0, Duration.ofSeconds(7)).start();
+        GoogleTokenClient client = clientFor(google, new MockEnvironment());
+
+        StepVerifier.create(client.refresh("refresh-1"))
+                .expectErrorSatisfies(error -> {
+                    assertThat(error).isInstanceOf(WebClientResponseException.TooManyRequests.class);
+                    assertThat(((WebClientResponseException) error).getHeaders().getFirst("Retry-After")).isEqualTo("7");
+                })
+                .verify();
+    }
+
+    @Test
+    void slowBodyTripsReadTimeout() {
+        google = GoogleOAuthStubServer.builder().slowBody(Duration.ofMillis(500)).start();
+        GoogleTokenClient client = clientFor(google, new MockEnvironment().withProperty("google_oauth_read_timeout", "PT0.2S"));
+
+        StepVerifier.create(client.refresh("refresh-1"))
+                .expectError()
+                .verify(Duration.ofSeconds(10));
+    }
+
+    private GoogleTokenClient clientFor(GoogleOAuthStubServer server, MockEnvironment env) {
+        env.setConversionService(new ApplicationConversionService());
+        env.withProperty("google_oauth_access_token_uri", server.tokenUri())
+                .withProperty("google_oauth_redirect_uri", "http://localhost/callback");
+
+        GoogleOAuthClientConfiguration configuration = new GoogleOAuthClientConfiguration();
+        connectionProvider = configuration.googleOAuthConnectionProvider(env, new GoogleOAuthPoolMetrics());
+        WebClient webClient = configuration.googleOAuthWebClient(WebClient.builder(), connectionProvider, env);
+        return new GoogleTokenClient(webClient, env, new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,92 @@
+package com.si.googleads.configuration;
+
+import com.si.googleads.revocation.Revocation;
+import com.si.googleads.revocation.RevocationList;
+import com.si.googleads.user.Role;
+import com.si.googleads.user.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuthenticationManagerTests {
+    private final User user = User.builder().id("6565f1c2a4b0b2a1c8e4d001").email("user@example.com").role(Role.USER).build();
+
+    private RevocationList revocationList;
+    private VerifiedTokenCache verifiedTokenCache;
+    private JwtService jwtService;
+    private AuthenticationManager authenticationManager;
+
+    @BeforeEach
+    void setUp() {
+        revocationList = new RevocationList(null, Duration.ofSeconds(1), Duration.ofSeconds(1));
+        verifiedTokenCache = new VerifiedTokenCache(true, 100);
+        jwtService = new JwtService(new SimpleMeterRegistry(), revocationList);
+        ReflectionTestUtils.setField(jwtService, "secretKey", "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970");
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 86400000L);
+        ReflectionTestUtils.setField(jwtService, "refreshExpiration", 604800000L);
+        ReflectionTestUtils.invokeMethod(jwtService, "init");
+        authenticationManager = new AuthenticationManager(jwtService, verifiedTokenCache, revocationList);
+    }
+
+    @Test
+    void revokedTokenIsRejectedEvenWhenItsClaimsAreCached() {
+        String token = jwtService.generateToken(user);
+
+        StepVerifier.create(authenticationManager.authenticate(bearer(token)))
+                .assertNext(authentication -> assertThat(authentication.getName()).isEqualTo(user.getEmail()))
+                .verifyComplete();
+
+        // The claims now come from the cache, without verifying the token again
+        JwtClaims cached = verifiedTokenCache.get(token, unused -> {
+            throw new AssertionError("token was verified again instead of read from the cache");
+        });
+        revocationList.apply(Revocation.builder().tokenId(cached.getTokenId()).expiresAt(cached.getExpiration()).build());
+
+        StepVerifier.create(authenticationManager.authenticate(bearer(token)))
+                .verifyComplete();
+    }
+
+    @Test
+    void subjectRevocationRejectsCachedTokensIssuedBeforeIt() {
+        String token = jwtService.generateToken(user);
+        StepVerifier.create(authenticationManager.authenticate(bearer(token)))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        // Stored on the next whole second, as RevocationService does, so the new token is issued within the revoked second
+        Instant revokedBefore = Instant.now().truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
+        revocationList.apply(Revocation.builder()
+                .subject(user.getEmail())
+                .revokedBefore(revokedBefore)
+                .expiresAt(revokedBefore.plus(jwtService.getAccessTokenLifetime()))
+                .build());
+
+        StepVerifier.create(authenticationManager.authenticate(bearer(token)))
+                .verifyComplete();
+        StepVerifier.create(authenticationManager.authenticate(bearer(jwtService.generateToken(user))))
+                .expectNextCount(1)
+                .verifyComplete();
+    }
+
+    @Test
+    void refreshTokenIsNotAcceptedAsBearerCredentials() {
+        String refreshToken = jwtService.generateRefreshToken(user, "family-1", "token-1");
+
+        StepVerifier.create(authenticationManager.authenticate(bearer(refreshToken)))
+                .verifyComplete();
+    }
+
+    private static Authentication bearer(String token) {
+        return new UsernamePasswordAuthenticationToken(token, token);
+    }
+}
@@ -0,0 +1,125 @@
+package com.si.googleads.configuration;
+
+import com.si.googleads.revocation.RevocationList;
+import com.si.googleads.user.Role;
+import com.si.googleads.user.User;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.config.annotation.method.configuration.EnableReactiveMethodSecurity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The context holds no user repository, so any authority decision can only come from the token's claims
+@SpringJUnitConfig(MethodAuthorizationTests.MethodSecurityConfiguration.class)
+class MethodAuthorizationTests {
+    private static final String SECRET = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
+
+    @Autowired
+    private AdminOperations adminOperations;
+
+    private JwtService jwtService;
+    private AuthenticationManager authenticationManager;
+
+    @BeforeEach
+    void setUp() {
+        RevocationList revocationList = new RevocationList(null, Duration.ofSeconds(1), Duration.ofSeconds(1));
+        jwtService = new JwtService(new SimpleMeterRegistry(), revocationList);
+        ReflectionTestUtils.setField(jwtService, "secretKey", SECRET);
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 86400000L);
+        ReflectionTestUtils.setField(jwtService, "refreshExpiration", 604800000L);
+        ReflectionTestUtils.invokeMethod(jwtService, "init");
+        authenticationManager = new AuthenticationManager(jwtService, new VerifiedTokenCache(true, 100), revocationList);
+    }
+
+    @Test
+    void adminRoleInTokenPassesAdminCheck() {
+        String token = jwtService.generateToken(user(Role.ADMIN));
+
+        StepVerifier.create(callAsBearer(token))
+                .expectNext("admin only")
+                .verifyComplete();
+    }
+
+    @Test
+    void userRoleInTokenFailsAdminCheck() {
+        String token = jwtService.generateToken(user(Role.USER));
+
+        StepVerifier.create(callAsBearer(token))
+                .expectError(AccessDeniedException.class)
+                .verify();
+    }
+
+    // Tokens issued before roles and user ids were embedded still authenticate, but carry no authorities
+    @Test
+    void legacyTokenWithoutRolesOrUserIdAuthenticatesWithoutAuthorities() {
+        String token = Jwts.builder()
+                .setSubject("legacy@example.com")
+                .setId(UUID.randomUUID().toString())
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)), SignatureAlgorithm.HS256)
+                .compact();
+
+        StepVerifier.create(authenticationManager.authenticate(bearer(token)))
+                .assertNext(authentication -> {
+                    assertThat(authentication.getName()).isEqualTo("legacy@example.com");
+                    assertThat(((AppUser) authentication).getUserId()).isNull();
+                    assertThat(authentication.getAuthorities()).isEmpty();
+                })
+                .verifyComplete();
+        StepVerifier.create(callAsBearer(token))
+                .expectError(AccessDeniedException.class)
+                .verify();
+    }
+
+    private Mono<String> callAsBearer(String token) {
+        return authenticationManager.authenticate(bearer(token))
+                .flatMap(authentication -> adminOperations.adminOnly()
+                        .contextWrite(ReactiveSecurityContextHolder.withAuthentication(authentication)));
+    }
+
+    private static Authentication bearer(String token) {
+        return new UsernamePasswordAuthenticationToken(token, token);
+    }
+
+    private static User user(Role role) {
+        return User.builder().id("6565f1c2a4b0b2a1c8e4d001").email("user@example.com").role(role).build();
+    }
+
+    @Configuration
+    @EnableReactiveMethodSecurity
+    static class MethodSecurityConfiguration {
+        @Bean
+        AdminOperations adminOperations() {
+            return new AdminOperations();
+        }
+    }
+
+    static class AdminOperations {
+        @PreAuthorize("hasAuthority('ADMIN')")
+        public Mono<String> adminOnly() {
+            return Mono.just("admin only");
+        }
+    }
+}
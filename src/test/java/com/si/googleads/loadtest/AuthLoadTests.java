@@ -0,0 +1,245 @@
+package com.si.googleads.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.si.googleads.auth.LoginRequest;
+import com.si.googleads.auth.RegisterRequest;
+import com.si.googleads.configuration.JwtService;
+import com.si.googleads.support.GoogleOAuthStubServer;
+import com.si.googleads.token.Token;
+import com.si.googleads.user.Role;
+import com.si.googleads.user.User;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Opt-in load test: ./mvnw -P load-test test -Dtest=AuthLoadTests [-Dload_test_concurrency=16,64,256]
+@Testcontainers(disabledWithoutDocker = true)
+@EnabledIfSystemProperty(named = "load_test_enabled", matches = "true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "rate_limit_enabled=false",
+        "password_hashing_queue_size=100000"
+})
+class AuthLoadTests {
+    private static final String PASSWORD = "load-test-password";
+    private static final int USERS = Integer.getInteger("load_test_users", 1000);
+    private static final int REQUESTS = Integer.getInteger("load_test_requests", 2000);
+    private static final int[] CONCURRENCY = Arrays.stream(System.getProperty("load_test_concurrency", "16,64,256").split(","))
+            .map(String::trim)
+            .mapToInt(Integer::parseInt)
+            .toArray();
+    private static final Path REPORT = Path.of(System.getProperty("load_test_report", "target/load-test/auth-load-test.json"));
+
+    @Container
+    @ServiceConnection
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    static GoogleOAuthStubServer google;
+
+    static ConnectionProvider connectionProvider;
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    ReactiveMongoTemplate mongoTemplate;
+
+    @Autowired
+    JwtService jwtService;
+
+    @DynamicPropertySource
+    static void googleProperties(DynamicPropertyRegistry registry) {
+        registry.add("google_oauth_access_token_uri", google::tokenUri);
+    }
+
+    @BeforeAll
+    static void startServers() {
+        google = GoogleOAuthStubServer.builder()
+                .latency(GoogleOAuthStubServer.LatencyDistribution.logNormal(Duration.ofMillis(40), 0.5))
+                .start();
+        connectionProvider = ConnectionProvider.builder("load-test")
+                .maxConnections(1024)
+                .pendingAcquireMaxCount(-1)
+                .build();
+    }
+
+    @AfterAll
+    static void stopServers() {
+        google.close();
+        connectionProvider.dispose();
+    }
+
+    @Test
+    void reportsLatencyAndThroughputPerEndpoint() throws Exception {
+        List<User> users = seedUsers();
+        List<String> jwts = users.stream().map(jwtService::generateToken).toList();
+        WebClient client = WebClient.builder()
+                .baseUrl("http://localhost:" + port + "/api/v1/auth")
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)))
+                .build();
+        AtomicInteger registrations = new AtomicInteger();
+
+        Map<String, IntFunction<Mono<Integer>>> endpoints = new LinkedHashMap<>();
+        endpoints.put("POST /register", i -> exchange(client.post().uri("/register")
+                .bodyValue(new RegisterRequest("load-register-" + registrations.incrementAndGet() + "@example.com", PASSWORD))));
+        endpoints.put("POST /login", i -> exchange(client.post().uri("/login")
+                .bodyValue(new LoginRequest(users.get(i % USERS).getEmail(), PASSWORD))));
+        endpoints.put("GET /google/callback", i -> exchange(client.get().uri("/google/callback?code=load-{i}", i)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + jwts.get(i % USERS))));
+
+        // Warm up the JIT, the connection pools and the caches before measuring
+        endpoints.values().forEach(call -> run(call, Math.min(REQUESTS, 200), CONCURRENCY[0]));
+
+        List<EndpointResult> results = new ArrayList<>();
+        for (int concurrency : CONCURRENCY) {
+            endpoints.forEach((endpoint, call) -> results.add(run(call, REQUESTS, concurrency).toResult(endpoint, concurrency)));
+        }
+        writeReport(results);
+
+        assertThat(results).allSatisfy(result -> assertThat(result.errors()).isZero());
+    }
+
+    private List<User> seedUsers() {
+        // Hash once so seeding does not spend minutes in BCrypt
+        String passwordHash = new BCryptPasswordEncoder().encode(PASSWORD);
+        Instant now = Instant.now();
+
+        List<User> users = Flux.range(0, USERS)
+                .map(i -> User.builder()
+                        .email("load-user-" + i + "@example.com")
+                        .password(passwordHash)
+                        .role(Role.USER)
+                        .build())
+                .collectList()
+                .flatMapMany(mongoTemplate::insertAll)
+                .collectList()
+                .block();
+
+        // Far-off expiry so the background refresher stays out of the measurements
+        Flux.fromIterable(users)
+                .map(user -> Token.builder()
+                        .email(user.getEmail())
+                        .accessToken("seed-" + user.getId())
+                        .refreshToken("refresh-" + user.getId())
+                        .expiresIn(Duration.ofDays(1))
+                        .expiresAt(now.plus(Duration.ofDays(1)))
+                        .build())
+                .collectList()
+                .flatMapMany(mongoTemplate::insertAll)
+                .blockLast();
+        return users;
+    }
+
+    private static Mono<Integer> exchange(WebClient.RequestHeadersSpec<?> request) {
+        return request.exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode().value()));
+    }
+
+    private static LatencyRecorder run(IntFunction<Mono<Integer>> call, int requests, int concurrency) {
+        LatencyRecorder recorder = new LatencyRecorder(requests);
+        long startedAt = System.nanoTime();
+        Flux.range(0, requests)
+                .flatMap(i -> {
+                    long requestStartedAt = System.nanoTime();
+                    return call.apply(ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE))
+                            .onErrorReturn(-1)
+                            .doOnNext(status -> recorder.record(System.nanoTime() - requestStartedAt, status));
+                }, concurrency)
+                .blockLast();
+        recorder.finish(System.nanoTime() - startedAt);
+        return recorder;
+    }
+
+    private static void writeReport(List<EndpointResult> results) throws Exception {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("timestamp", Instant.now());
+        report.put("users", USERS);
+        report.put("requestsPerRun", REQUESTS);
+        report.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        report.put("results", results);
+
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        Files.createDirectories(REPORT.toAbsolutePath().getParent());
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(REPORT.toFile(), report);
+    }
+
+    record EndpointResult(String endpoint, int concurrency, int requests, int errors, double throughputPerSecond,
+                          double p50Millis, double p95Millis, double p99Millis, double maxMillis) {
+    }
+
+    private static final class LatencyRecorder {
+        private final long[] latencies;
+        private final AtomicInteger recorded = new AtomicInteger();
+        private final AtomicInteger errors = new AtomicInteger();
+        private long elapsedNanos;
+
+        LatencyRecorder(int requests) {
+            this.latencies = new long[requests];
+        }
+
+        void record(long latencyNanos, int status) {
+            latencies[recorded.getAndIncrement()] = latencyNanos;
+            if (status < 200 || status >= 300) {
+                errors.incrementAndGet();
+            }
+        }
+
+        void finish(long elapsedNanos) {
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        EndpointResult toResult(String endpoint, int concurrency) {
+            int count = recorded.get();
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return new EndpointResult(endpoint, concurrency, count, errors.get(),
+                    count / (elapsedNanos / 1e9),
+                    percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99),
+                    count == 0 ? 0 : sorted[count - 1] / 1e6);
+        }
+
+        private static double percentile(long[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile * sorted.length) - 1;
+            return sorted[Math.max(index, 0)] / 1e6;
+        }
+    }
+}
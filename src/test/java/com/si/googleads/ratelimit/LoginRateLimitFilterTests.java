@@ -0,0 +1,93 @@
+package com.si.googleads.ratelimit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LoginRateLimitFilterTests {
+    private static final String LOGIN_BODY = "{\"email\":\" User@Example.com \",\"password\":\"secret\"}";
+
+    private LoginRateLimitFilter filter;
+    private final List<String> forwardedBodies = new ArrayList<>();
+
+    // Reads the body the way the controller would, to check the filter replays what it consumed
+    private final WebFilterChain chain = exchange -> DataBufferUtils.join(exchange.getRequest().getBody())
+            .map(buffer -> {
+                String body = buffer.toString(StandardCharsets.UTF_8);
+                DataBufferUtils.release(buffer);
+                return body;
+            })
+            .defaultIfEmpty("")
+            .doOnNext(forwardedBodies::add)
+            .then();
+
+    @BeforeEach
+    void setUp() {
+        MockEnvironment env = new MockEnvironment()
+                .withProperty("rate_limit_login_email_capacity", "1")
+                .withProperty("rate_limit_login_email_period", "PT1M");
+        env.setConversionService(new ApplicationConversionService());
+        filter = new LoginRateLimitFilter(new RateLimiter(Duration.ofHours(1)), new ObjectMapper(), env);
+    }
+
+    @Test
+    void allowedLoginReachesTheControllerWithItsBodyIntact() {
+        StepVerifier.create(filter.filter(login(LOGIN_BODY), chain)).verifyComplete();
+
+        assertThat(forwardedBodies).containsExactly(LOGIN_BODY);
+    }
+
+    @Test
+    void exceededEmailLimitIsRejectedWithRetryAfter() {
+        StepVerifier.create(filter.filter(login(LOGIN_BODY), chain)).verifyComplete();
+
+        // Same email after normalisation, so it shares the first request's bucket
+        MockServerWebExchange rejected = login("{\"email\":\"user@example.com\",\"password\":\"other\"}");
+        StepVerifier.create(filter.filter(rejected, chain)).verifyComplete();
+
+        assertThat(forwardedBodies).hasSize(1);
+        assertThat(rejected.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(Long.parseLong(rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER))).isBetween(1L, 60L);
+        assertThat(rejected.getResponse().getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+        StepVerifier.create(rejected.getResponse().getBodyAsString())
+                .assertNext(body -> assertThat(body).contains("Too many requests"))
+                .verifyComplete();
+    }
+
+    @Test
+    void otherRoutesAreNotLimited() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/api/v1/auth/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body("{}"));
+
+        for (int i = 0; i < 5; i++) {
+            StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+        }
+        assertThat(forwardedBodies).hasSize(5);
+    }
+
+    private static MockServerWebExchange login(String body) {
+        return MockServerWebExchange.from(MockServerHttpRequest.post("/api/v1/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body));
+    }
+}
@@ -0,0 +1,36 @@
+package com.si.googleads.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimiterTests {
+    private static final RateLimit TWO_PER_HOUR = new RateLimit(2, Duration.ofHours(1));
+
+    @Test
+    void eachKeyHasItsOwnBucket() {
+        RateLimiter rateLimiter = new RateLimiter(Duration.ofHours(1));
+
+        assertThat(rateLimiter.tryAcquire("login:ip:a", TWO_PER_HOUR)).isZero();
+        assertThat(rateLimiter.tryAcquire("login:ip:a", TWO_PER_HOUR)).isZero();
+        assertThat(rateLimiter.tryAcquire("login:ip:a", TWO_PER_HOUR)).isPositive();
+        assertThat(rateLimiter.tryAcquire("login:ip:b", TWO_PER_HOUR)).isZero();
+    }
+
+    @Test
+    void sweepKeepsActiveBucketsAndEvictsIdleOnes() {
+        RateLimiter active = new RateLimiter(Duration.ofHours(1));
+        active.tryAcquire("key", TWO_PER_HOUR);
+        active.tryAcquire("key", TWO_PER_HOUR);
+        active.evictIdleBuckets();
+        assertThat(active.tryAcquire("key", TWO_PER_HOUR)).isPositive();
+
+        RateLimiter idle = new RateLimiter(Duration.ZERO);
+        idle.tryAcquire("key", TWO_PER_HOUR);
+        idle.tryAcquire("key", TWO_PER_HOUR);
+        idle.evictIdleBuckets();
+        assertThat(idle.tryAcquire("key", TWO_PER_HOUR)).isZero();
+    }
+}
@@ -0,0 +1,50 @@
+package com.si.googleads.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTests {
+    private static final long SECOND = Duration.ofSeconds(1).toNanos();
+
+    @Test
+    void emptyBucketReportsWaitUntilNextToken() {
+        TokenBucket bucket = new TokenBucket(2, Duration.ofSeconds(2), 0);
+
+        assertThat(bucket.tryConsume(0)).isZero();
+        assertThat(bucket.tryConsume(0)).isZero();
+        assertThat(bucket.tryConsume(0)).isEqualTo(SECOND);
+        // A rejected attempt takes nothing, so half a second later half the wait is left
+        assertThat(bucket.tryConsume(SECOND / 2)).isEqualTo(SECOND / 2);
+    }
+
+    @Test
+    void refillIsCappedAtCapacity() {
+        TokenBucket bucket = new TokenBucket(2, Duration.ofSeconds(2), 0);
+        bucket.tryConsume(0);
+        bucket.tryConsume(0);
+
+        assertThat(bucket.tryConsume(SECOND)).isZero();
+        assertThat(bucket.tryConsume(SECOND)).isPositive();
+
+        long muchLater = 60 * SECOND;
+        assertThat(bucket.tryConsume(muchLater)).isZero();
+        assertThat(bucket.tryConsume(muchLater)).isZero();
+        assertThat(bucket.tryConsume(muchLater)).isPositive();
+        assertThat(bucket.getLastAccessNanos()).isEqualTo(muchLater);
+    }
+
+    @Test
+    void reserveGoesIntoDebtAndSpacesCallersOut() {
+        TokenBucket bucket = new TokenBucket(1, Duration.ofSeconds(1), 0);
+
+        assertThat(bucket.reserve(0)).isZero();
+        assertThat(bucket.reserve(0)).isEqualTo(SECOND);
+        assertThat(bucket.reserve(0)).isEqualTo(2 * SECOND);
+        // The debt also holds back callers that only try, until it is paid off
+        assertThat(bucket.tryConsume(0)).isEqualTo(3 * SECOND);
+        assertThat(bucket.tryConsume(3 * SECOND)).isZero();
+    }
+}
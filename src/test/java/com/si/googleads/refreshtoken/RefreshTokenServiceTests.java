@@ -0,0 +1,139 @@
+package com.si.googleads.refreshtoken;
+
+import com.si.googleads.configuration.JwtService;
+import com.si.googleads.exceptions.InvalidTokenException;
+import com.si.googleads.revocation.Revocation;
+import com.si.googleads.revocation.RevocationList;
+import com.si.googleads.revocation.RevocationService;
+import com.si.googleads.user.Role;
+import com.si.googleads.user.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class RefreshTokenServiceTests {
+    private static final String EMAIL = "user@example.com";
+
+    private ReactiveMongoTemplate mongoTemplate;
+    private RevocationService revocationService;
+    private JwtService jwtService;
+    private RefreshTokenService refreshTokenService;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(ReactiveMongoTemplate.class);
+        revocationService = mock(RevocationService.class);
+        jwtService = new JwtService(new SimpleMeterRegistry(), new RevocationList(null, Duration.ofSeconds(1), Duration.ofSeconds(1)));
+        ReflectionTestUtils.setField(jwtService, "secretKey", "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970");
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 86400000L);
+        ReflectionTestUtils.setField(jwtService, "refreshExpiration", 604800000L);
+        ReflectionTestUtils.invokeMethod(jwtService, "init");
+
+        refreshTokenService = new RefreshTokenService(mongoTemplate, jwtService, revocationService);
+        ReflectionTestUtils.setField(refreshTokenService, "maxFamilyLifetime", Duration.ofDays(30));
+    }
+
+    @Test
+    void currentTokenIsExchangedForTheNextOneInItsFamily() {
+        RefreshTokenFamily family = family("token-1");
+        RefreshTokenFamily rotated = family("token-2");
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class), eq(RefreshTokenFamily.class)))
+                .thenReturn(Mono.just(rotated));
+
+        StepVerifier.create(refreshTokenService.rotate(refreshTokenService.sign(family)))
+                .assertNext(next -> {
+                    assertThat(next.getCurrentTokenId()).isEqualTo("token-2");
+                    assertThat(jwtService.verifyToken(refreshTokenService.sign(next)).getTokenId()).isEqualTo("token-2");
+                })
+                .verifyComplete();
+
+        ArgumentCaptor<Query> current = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).findAndModify(current.capture(), any(UpdateDefinition.class), any(FindAndModifyOptions.class), eq(RefreshTokenFamily.class));
+        assertThat(current.getValue().getQueryObject())
+                .containsEntry("id", family.getId())
+                .containsEntry("currentTokenId", "token-1")
+                .containsKeys("expiresAt", "createdAt");
+        verifyNoInteractions(revocationService);
+    }
+
+    @Test
+    void reusingARotatedTokenEndsTheFamilyAndRevokesTheSubject() {
+        String rotatedAway = refreshTokenService.sign(family("token-1"));
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class), eq(RefreshTokenFamily.class)))
+                .thenReturn(Mono.empty());
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(RefreshTokenFamily.class)))
+                .thenReturn(Mono.just(family("token-2")));
+        when(revocationService.revokeSubject(eq(EMAIL), any(Duration.class)))
+                .thenReturn(Mono.just(Revocation.builder().subject(EMAIL).build()));
+
+        StepVerifier.create(refreshTokenService.rotate(rotatedAway))
+                .expectError(InvalidTokenException.class)
+                .verify();
+
+        verify(mongoTemplate).findAndRemove(any(Query.class), eq(RefreshTokenFamily.class));
+        verify(revocationService).revokeSubject(eq(EMAIL), eq(jwtService.getAccessTokenLifetime()));
+    }
+
+    // An expired or over-age family no longer matches the rotation, but its token was still current, so it is not reuse
+    @Test
+    void expiredFamilyIsRejectedWithoutRevokingTheSubject() {
+        RefreshTokenFamily expired = family("token-1");
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class), eq(RefreshTokenFamily.class)))
+                .thenReturn(Mono.empty());
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(RefreshTokenFamily.class)))
+                .thenReturn(Mono.just(expired));
+
+        StepVerifier.create(refreshTokenService.rotate(refreshTokenService.sign(expired)))
+                .expectError(InvalidTokenException.class)
+                .verify();
+
+        verify(mongoTemplate).findAndRemove(any(Query.class), eq(RefreshTokenFamily.class));
+        verify(revocationService, never()).revokeSubject(any(), any());
+    }
+
+    @Test
+    void accessTokenIsNotAcceptedForRefresh() {
+        String accessToken = jwtService.generateToken(family("token-1").toUser());
+
+        StepVerifier.create(refreshTokenService.rotate(accessToken))
+                .expectError(InvalidTokenException.class)
+                .verify();
+
+        verifyNoInteractions(mongoTemplate, revocationService);
+    }
+
+    private static RefreshTokenFamily family(String currentTokenId) {
+        Instant createdAt = Instant.now().minus(Duration.ofHours(1));
+        User user = User.builder().id("6565f1c2a4b0b2a1c8e4d001").email(EMAIL).role(Role.USER).build();
+        return RefreshTokenFamily.builder()
+                .id("family-1")
+                .currentTokenId(currentTokenId)
+                .userId(user.getId())
+                .email(user.getEmail())
+                .role(user.getRole())
+                .expiresAt(createdAt.plus(Duration.ofDays(7)))
+                .createdAt(createdAt)
+                .rotatedAt(createdAt)
+                .build();
+    }
+}
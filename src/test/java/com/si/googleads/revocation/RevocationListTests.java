@@ -0,0 +1,66 @@
+package com.si.googleads.revocation;
+
+import com.si.googleads.configuration.JwtClaims;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RevocationListTests {
+    private static final String SUBJECT = "user@example.com";
+
+    private final RevocationList revocationList = new RevocationList(null, Duration.ofSeconds(1), Duration.ofSeconds(1));
+
+    @Test
+    void revokedTokenIdIsRejectedAndOtherTokensAreNot() {
+        Instant now = Instant.now();
+        revocationList.apply(Revocation.builder().tokenId("jti-1").expiresAt(now.plusSeconds(60)).build());
+
+        assertThat(revocationList.isRevoked(claims("jti-1", now.minusSeconds(10)))).isTrue();
+        assertThat(revocationList.isRevoked(claims("jti-2", now.minusSeconds(10)))).isFalse();
+    }
+
+    @Test
+    void subjectRevocationOnlyRejectsTokensIssuedBeforeTheCutoff() {
+        Instant revokedBefore = Instant.now().truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
+        revocationList.apply(Revocation.builder()
+                .subject(SUBJECT)
+                .revokedBefore(revokedBefore)
+                .expiresAt(revokedBefore.plusSeconds(60))
+                .build());
+
+        assertThat(revocationList.isRevoked(claims("jti-1", revokedBefore.minusSeconds(1)))).isTrue();
+        assertThat(revocationList.isRevoked(claims("jti-2", revokedBefore))).isFalse();
+        assertThat(revocationList.isRevoked(claims("jti-3", revokedBefore.plusSeconds(1)))).isFalse();
+        assertThat(revocationList.isRevoked(claims("jti-4", null))).isTrue();
+    }
+
+    @Test
+    void purgeDropsRevocationsOnceTheirTokensHaveExpired() {
+        Instant now = Instant.now();
+        revocationList.apply(Revocation.builder().tokenId("expired").expiresAt(now.minusSeconds(1)).build());
+        revocationList.apply(Revocation.builder().tokenId("live").expiresAt(now.plusSeconds(60)).build());
+        revocationList.apply(Revocation.builder()
+                .subject(SUBJECT)
+                .revokedBefore(now.minusSeconds(120))
+                .expiresAt(now.minusSeconds(1))
+                .build());
+
+        revocationList.purgeExpired();
+
+        assertThat(revocationList.size()).isEqualTo(1);
+        assertThat(revocationList.isRevoked(claims("live", now))).isTrue();
+        assertThat(revocationList.isRevoked(claims("expired", now.minusSeconds(300)))).isFalse();
+    }
+
+    private static JwtClaims claims(String tokenId, Instant issuedAt) {
+        return JwtClaims.builder()
+                .subject(SUBJECT)
+                .tokenId(tokenId)
+                .issuedAt(issuedAt)
+                .build();
+    }
+}
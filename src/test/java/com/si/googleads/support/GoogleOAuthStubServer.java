@@ -0,0 +1,261 @@
+package com.si.googleads.support;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// Local stand-in for https://oauth2.googleapis.com/token; point google_oauth_access_token_uri at tokenUri()
+public class GoogleOAuthStubServer implements AutoCloseable {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Supplier<Duration> latency;
+    private final double errorRate;
+    private final double rateLimitRate;
+    private final Duration retryAfter;
+    private final Duration slowBodyChunkDelay;
+    private final long expiresInSeconds;
+    private final DisposableServer server;
+
+    private final AtomicInteger authorizationCodeGrants = new AtomicInteger();
+    private final AtomicInteger refreshGrants = new AtomicInteger();
+    private final AtomicInteger rateLimitedResponses = new AtomicInteger();
+    private final AtomicInteger errorResponses = new AtomicInteger();
+    private final Map<String, AtomicInteger> refreshesByToken = new ConcurrentHashMap<>();
+
+    private GoogleOAuthStubServer(Builder builder) {
+        this.latency = builder.latency;
+        this.errorRate = builder.errorRate;
+        this.rateLimitRate = builder.rateLimitRate;
+        this.retryAfter = builder.retryAfter;
+        this.slowBodyChunkDelay = builder.slowBodyChunkDelay;
+        this.expiresInSeconds = builder.expiresInSeconds;
+        this.server = HttpServer.create()
+                .port(builder.port)
+                .route(routes -> routes.post("/token", this::handle))
+                .bindNow();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static GoogleOAuthStubServer start() {
+        return builder().start();
+    }
+
+    public String tokenUri() {
+        return "http://localhost:" + server.port() + "/token";
+    }
+
+    public int port() {
+        return server.port();
+    }
+
+    public int authorizationCodeGrants() {
+        return authorizationCodeGrants.get();
+    }
+
+    public int refreshGrants() {
+        return refreshGrants.get();
+    }
+
+    public int rateLimitedResponses() {
+        return rateLimitedResponses.get();
+    }
+
+    public int errorResponses() {
+        return errorResponses.get();
+    }
+
+    public Map<String, Integer> refreshesByToken() {
+        Map<String, Integer> counts = new HashMap<>();
+        refreshesByToken.forEach((token, count) -> counts.put(token, count.get()));
+        return counts;
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+    }
+
+    private Mono<Void> handle(HttpServerRequest request, HttpServerResponse response) {
+        return request.receive().aggregate().asString().defaultIfEmpty("")
+                .delayUntil(body -> Mono.delay(latency.get()))
+                .flatMap(body -> respond(request, response, parseParameters(request, body)));
+    }
+
+    private Mono<Void> respond(HttpServerRequest request, HttpServerResponse response, Map<String, String> parameters) {
+        double roll = ThreadLocalRandom.current().nextDouble();
+        if (roll < rateLimitRate) {
+            rateLimitedResponses.incrementAndGet();
+            response.header("Retry-After", String.valueOf(retryAfter.toSeconds()));
+            return send(response, 429, Map.of("error", "rate_limit_exceeded"));
+        }
+        if (roll < rateLimitRate + errorRate) {
+            errorResponses.incrementAndGet();
+            return send(response, 500, Map.of("error", "internal_failure"));
+        }
+
+        String grantType = parameters.getOrDefault("grant_type", "");
+        switch (grantType) {
+            case "authorization_code" -> {
+                String code = parameters.get("code");
+                if (code == null) {
+                    return send(response, 400, Map.of("error", "invalid_request"));
+                }
+                int grant = authorizationCodeGrants.incrementAndGet();
+                return send(response, 200, Map.of(
+                        "access_token", "access-" + code + "-" + grant,
+                        "refresh_token", "refresh-" + code,
+                        "expires_in", expiresInSeconds,
+                        "token_type", "Bearer",
+                        "scope", "https://www.googleapis.com/auth/analytics.readonly"));
+            }
+            case "refresh_token" -> {
+                String refreshToken = parameters.get("refresh_token");
+                if (refreshToken == null) {
+                    return send(response, 400, Map.of("error", "invalid_request"));
+                }
+                refreshGrants.incrementAndGet();
+                int refresh = refreshesByToken.computeIfAbsent(refreshToken, key -> new AtomicInteger()).incrementAndGet();
+                return send(response, 200, Map.of(
+                        "access_token", "new-" + refreshToken + "-" + refresh,
+                        "expires_in", expiresInSeconds,
+                        "token_type", "Bearer"));
+            }
+            default -> {
+                return send(response, 400, Map.of("error", "unsupported_grant_type"));
+            }
+        }
+    }
+
+    private Mono<Void> send(HttpServerResponse response, int status, Map<String, Object> body) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(body);
+        } catch (Exception e) {
+            return Mono.error(e);
+        }
+
+        response.status(status).header("Content-Type", "application/json");
+        if (slowBodyChunkDelay.isZero()) {
+            return response.sendString(Mono.just(json)).then();
+        }
+
+        // Drip the body out a few bytes at a time to exercise client read timeouts
+        List<String> chunks = new ArrayList<>();
+        for (int i = 0; i < json.length(); i += 8) {
+            chunks.add(json.substring(i, Math.min(json.length(), i + 8)));
+        }
+        return response.sendString(Flux.fromIterable(chunks).delayElements(slowBodyChunkDelay)).then();
+    }
+
+    private Map<String, String> parseParameters(HttpServerRequest request, String body) {
+        Map<String, String> parameters = new HashMap<>();
+        String contentType = request.requestHeaders().get("Content-Type", "");
+
+        if (contentType.contains("application/json") && !body.isBlank()) {
+            try {
+                JsonNode json = objectMapper.readTree(body);
+                json.fields().forEachRemaining(field -> parameters.put(field.getKey(), field.getValue().asText()));
+            } catch (Exception e) {
+                return parameters;
+            }
+        } else if (!body.isBlank()) {
+            for (String pair : body.split("&")) {
+                int separator = pair.indexOf('=');
+                if (separator > 0) {
+                    parameters.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                            URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return parameters;
+    }
+
+    public static final class LatencyDistribution {
+        private LatencyDistribution() {
+        }
+
+        public static Supplier<Duration> none() {
+            return () -> Duration.ZERO;
+        }
+
+        public static Supplier<Duration> fixed(Duration latency) {
+            return () -> latency;
+        }
+
+        public static Supplier<Duration> uniform(Duration min, Duration max) {
+            return () -> Duration.ofNanos(ThreadLocalRandom.current().nextLong(min.toNanos(), max.toNanos() + 1));
+        }
+
+        // Long-tailed latency like a real remote endpoint: most calls near the median, a few much slower
+        public static Supplier<Duration> logNormal(Duration median, double sigma) {
+            return () -> Duration.ofNanos((long) (median.toNanos() * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian())));
+        }
+    }
+
+    public static final class Builder {
+        private int port = 0;
+        private Supplier<Duration> latency = LatencyDistribution.none();
+        private double errorRate = 0;
+        private double rateLimitRate = 0;
+        private Duration retryAfter = Duration.ofSeconds(1);
+        private Duration slowBodyChunkDelay = Duration.ZERO;
+        private long expiresInSeconds = 3599;
+
+        private Builder() {
+        }
+
+        public Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        public Builder latency(Supplier<Duration> latency) {
+            this.latency = latency;
+            return this;
+        }
+
+        public Builder errorRate(double errorRate) {
+            this.errorRate = errorRate;
+            return this;
+        }
+
+        public Builder rateLimitRate(double rateLimitRate, Duration retryAfter) {
+            this.rateLimitRate = rateLimitRate;
+            this.retryAfter = retryAfter;
+            return this;
+        }
+
+        public Builder slowBody(Duration chunkDelay) {
+            this.slowBodyChunkDelay = chunkDelay;
+            return this;
+        }
+
+        public Builder expiresIn(Duration expiresIn) {
+            this.expiresInSeconds = expiresIn.toSeconds();
+            return this;
+        }
+
+        public GoogleOAuthStubServer start() {
+            return new GoogleOAuthStubServer(this);
+        }
+    }
+}
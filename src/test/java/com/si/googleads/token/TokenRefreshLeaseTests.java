@@ -0,0 +1,100 @@
+package com.si.googleads.token;
+
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import com.si.googleads.GoogleAdsApplication;
+import com.si.googleads.support.GoogleOAuthStubServer;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers(disabledWithoutDocker = true)
+class TokenRefreshLeaseTests {
+    private static final int NODES = 3;
+    private static final int TOKENS = 50;
+    private static final String DATABASE = "google_ads";
+    private static final Duration REFRESH_WINDOW = Duration.ofMinutes(5);
+    // Long enough for every node to finish booting, so no node gets a head start on the due tokens
+    private static final Duration DUE_AFTER = Duration.ofSeconds(45);
+
+    @Container
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    @Test
+    void eachDueTokenIsRefreshedByExactlyOneNode() throws Exception {
+        GoogleOAuthStubServer google = GoogleOAuthStubServer.start();
+
+        MongoClient mongoClient = MongoClients.create(mongo.getReplicaSetUrl(DATABASE));
+        ReactiveMongoTemplate mongoTemplate = new ReactiveMongoTemplate(mongoClient, DATABASE);
+        List<CompletableFuture<ConfigurableApplicationContext>> nodes = new ArrayList<>();
+
+        try {
+            Instant now = Instant.now();
+            Instant dueAt = now.plus(DUE_AFTER);
+            Flux.range(0, TOKENS)
+                    .map(i -> Token.builder()
+                            .email("user-" + i + "@example.com")
+                            .accessToken("old-" + i)
+                            .refreshToken("refresh-" + i)
+                            .expiresIn(Duration.ofMinutes(1))
+                            .expiresAt(dueAt.plus(REFRESH_WINDOW))
+                            .createdAt(now)
+                            .updatedAt(now)
+                            .build())
+                    .flatMap(mongoTemplate::insert)
+                    .blockLast();
+
+            for (int i = 0; i < NODES; i++) {
+                nodes.add(CompletableFuture.supplyAsync(() -> new SpringApplicationBuilder(GoogleAdsApplication.class)
+                        .properties(
+                                "server.port=0",
+                                "spring.data.mongodb.host=" + mongo.getHost(),
+                                "spring.data.mongodb.port=" + mongo.getFirstMappedPort(),
+                                "spring.data.mongodb.database=" + DATABASE,
+                                "google_oauth_access_token_uri=" + google.tokenUri(),
+                                "token_refresh_window=" + REFRESH_WINDOW,
+                                "token_refresh_tick=PT0.2S",
+                                "token_refresh_rate_per_second=1000")
+                        .run()));
+            }
+            CompletableFuture.allOf(nodes.toArray(CompletableFuture[]::new)).join();
+            assertThat(Instant.now()).as("all nodes up before the tokens fall due").isBefore(dueAt);
+            assertThat(google.refreshesByToken()).isEmpty();
+
+            Query refreshed = Query.query(Criteria.where("accessToken").regex("^new-"));
+            Instant deadline = dueAt.plusSeconds(60);
+            while (mongoTemplate.count(refreshed, Token.class).block() < TOKENS && Instant.now().isBefore(deadline)) {
+                Thread.sleep(200);
+            }
+            // Give losing nodes time to make any duplicate call before counting
+            Thread.sleep(2000);
+
+            assertThat(mongoTemplate.count(refreshed, Token.class).block()).isEqualTo(TOKENS);
+            Map<String, Integer> refreshes = google.refreshesByToken();
+            assertThat(refreshes).hasSize(TOKENS);
+            for (int i = 0; i < TOKENS; i++) {
+                assertThat(refreshes.get("refresh-" + i)).as("refreshes of refresh-" + i).isEqualTo(1);
+            }
+        } finally {
+            nodes.forEach(node -> node.thenAccept(ConfigurableApplicationContext::close));
+            mongoClient.close();
+            google.close();
+        }
+    }
+}
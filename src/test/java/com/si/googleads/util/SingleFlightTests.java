@@ -0,0 +1,27 @@
+package com.si.googleads.util;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SingleFlightTests {
+
+    @Test
+    void supplierThatThrowsFailsCallerAndReleasesKey() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+        StepVerifier.create(singleFlight.execute("user@example.com", () -> {
+                    throw new NullPointerException("refresh token");
+                }))
+                .expectError(NullPointerException.class)
+                .verify();
+        assertThat(singleFlight.size()).isZero();
+
+        StepVerifier.create(singleFlight.execute("user@example.com", () -> Mono.just("access-token")))
+                .expectNext("access-token")
+                .verifyComplete();
+        assertThat(singleFlight.size()).isZero();
+    }
+}